@@ -0,0 +1,60 @@
+package com.sessions.config;
+
+import com.sessions.service.AuthTokens;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Verifies "Authorization: Bearer" tokens in memory and exposes the caller as
+ * the AuthTokens.PRINCIPAL_ATTRIBUTE request attribute. Requests without a
+ * token pass through anonymously; a token that fails verification gets 401,
+ * except on login and register, which are not filtered so a stale token cannot
+ * lock a client out of getting a new one.
+ */
+@Component
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private static final Set<String> PUBLIC_PATHS = Set.of("/api/auth/login", "/api/auth/register");
+
+    @Autowired
+    private AuthTokens authTokens;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return PUBLIC_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER) || "OPTIONS".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AuthTokens.Principal principal = authTokens.verify(header.substring(BEARER.length()).trim());
+        if (principal == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            // Answered before the CORS handling in MVC, so the browser could not read it otherwise
+            response.setHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Invalid or expired token\"}");
+            return;
+        }
+        request.setAttribute(AuthTokens.PRINCIPAL_ATTRIBUTE, principal);
+        chain.doFilter(request, response);
+    }
+}
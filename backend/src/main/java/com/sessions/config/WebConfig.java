@@ -15,7 +15,8 @@ public class WebConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
-                .exposedHeaders("Content-Disposition")             // For file downloads
+                .exposedHeaders("Content-Disposition", "ETag",     // For file downloads
+                        "Last-Modified", "Accept-Ranges", "Content-Range")
                 .allowCredentials(false)
                 .maxAge(3600);                                     // Cache preflight for 1 hour
     }
@@ -2,7 +2,10 @@ package com.sessions.controller;
 
 import com.sessions.model.User;
 import com.sessions.repository.UserRepository;
+import com.sessions.service.AuthTokens;
+import com.sessions.service.UserCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,10 +24,17 @@ public class AuthController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private AuthTokens authTokens;
+    
+    @Autowired
+    private UserCache userCache;
+    
     /**
      * POST /api/auth/login
      * Body: { name, password }
-     * Returns: { success, user, message }
+     * Returns: { success, token, user, message }
+     * Send the token back as "Authorization: Bearer {token}"
      */
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> request) {
@@ -44,7 +54,8 @@ public class AuthController {
         if (user.isPresent() && user.get().getPassword() != null && 
             user.get().getPassword().equals(password)) {
             response.put("success", true);
-            response.put("user", user.get());
+            response.put("token", authTokens.issue(user.get()));
+            response.put("user", summary(user.get()));
             response.put("message", "Login successful");
             return ResponseEntity.ok(response);
         }
@@ -56,8 +67,9 @@ public class AuthController {
     
     /**
      * POST /api/auth/register
-     * Body: { name, password, isAdmin? }
-     * Returns: { success, user, message }
+     * Body: { name, password }
+     * Returns: { success, token, user, message }
+     * Accounts made here are never admins; an isAdmin field in the body is ignored
      */
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> register(@RequestBody Map<String, Object> request) {
@@ -65,7 +77,6 @@ public class AuthController {
         
         String name = (String) request.get("name");
         String password = (String) request.get("password");
-        Boolean isAdmin = (Boolean) request.getOrDefault("isAdmin", false);
         
         // Validation
         if (name == null || name.isEmpty()) {
@@ -98,21 +109,31 @@ public class AuthController {
         User newUser = new User();
         newUser.setName(name);
         newUser.setPassword(password);
-        newUser.setIsAdmin(isAdmin);
+        newUser.setIsAdmin(false);
         newUser.setSessionIds(new ArrayList<>());
         newUser.setCreatedAt(Instant.now());
         
-        User savedUser = userRepository.save(newUser);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(newUser);
+        } catch (DuplicateKeyException e) {
+            // Registered concurrently since the check above
+            response.put("success", false);
+            response.put("message", "User already exists");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        userCache.invalidate(savedUser);
         
         response.put("success", true);
-        response.put("user", savedUser);
+        response.put("token", authTokens.issue(savedUser));
+        response.put("user", summary(savedUser));
         response.put("message", "User registered successfully");
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
     
     /**
      * POST /api/auth/logout
-     * No body required
+     * No body required; tokens are stateless, so the client just drops its token
      * Returns: { success, message }
      */
     @PostMapping("/logout")
@@ -123,21 +144,49 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * GET /api/auth/me
+     * The caller named by their token, looked up through the user cache
+     * Returns: { success, user: { id, name, isAdmin, createdAt }, expiresAt }
+     */
+    @GetMapping("/me")
+    public ResponseEntity<Map<String, Object>> me(
+            @RequestAttribute(name = AuthTokens.PRINCIPAL_ATTRIBUTE, required = false) AuthTokens.Principal principal) {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Not logged in");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        Optional<User> user = userCache.find(principal.userId());
+        if (user.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "User no longer exists");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
+        response.put("success", true);
+        response.put("user", summary(user.get()));
+        response.put("expiresAt", principal.expiresAt());
+        return ResponseEntity.ok(response);
+    }
+    
     /**
      * GET /api/auth/validate/{userId}
-     * Validates if a user exists and returns their info
-     * Returns: { success, user }
+     * Validates if a user exists and returns their info.
+     * Returns: { success, user: { id, name, isAdmin, createdAt } }
      */
     @GetMapping("/validate/{userId}")
     public ResponseEntity<Map<String, Object>> validateUser(@PathVariable String userId) {
         Map<String, Object> response = new HashMap<>();
         
-        Optional<User> user = userRepository.findById(userId)
-                .or(() -> userRepository.findByName(userId));
+        Optional<User> user = userCache.find(userId);
         
         if (user.isPresent()) {
             response.put("success", true);
-            response.put("user", user.get());
+            response.put("user", summary(user.get()));
             return ResponseEntity.ok(response);
         }
         
@@ -148,13 +197,22 @@ public class AuthController {
     
     /**
      * PUT /api/auth/change-password
+     * Requires "Authorization: Bearer {token}" for the user, or for an admin
      * Body: { userId, oldPassword, newPassword }
      * Returns: { success, message }
      */
     @PutMapping("/change-password")
-    public ResponseEntity<Map<String, Object>> changePassword(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, Object>> changePassword(
+            @RequestBody Map<String, String> request,
+            @RequestAttribute(name = AuthTokens.PRINCIPAL_ATTRIBUTE, required = false) AuthTokens.Principal principal) {
         Map<String, Object> response = new HashMap<>();
         
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Not logged in");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        
         String userId = request.get("userId");
         String oldPassword = request.get("oldPassword");
         String newPassword = request.get("newPassword");
@@ -171,16 +229,24 @@ public class AuthController {
             return ResponseEntity.badRequest().body(response);
         }
         
-        Optional<User> user = userRepository.findById(userId)
-                .or(() -> userRepository.findByName(userId));
+        Optional<User> user = userCache.find(userId);
         
-        if (user.isEmpty()) {
+        // A token may only change its own user's password, unless it is an admin's
+        if (!principal.admin() && user.isPresent() && !principal.userId().equals(user.get().getId())) {
+            response.put("success", false);
+            response.put("message", "Not allowed");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+        
+        // Cached users must not be mutated; read the current document for the write
+        Optional<User> current = user.flatMap(found -> userRepository.findById(found.getId()));
+        if (current.isEmpty()) {
             response.put("success", false);
             response.put("message", "User not found");
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         }
         
-        User foundUser = user.get();
+        User foundUser = current.get();
         
         if (!oldPassword.equals(foundUser.getPassword())) {
             response.put("success", false);
@@ -190,9 +256,20 @@ public class AuthController {
         
         foundUser.setPassword(newPassword);
         userRepository.save(foundUser);
+        userCache.invalidate(foundUser);
         
         response.put("success", true);
         response.put("message", "Password changed successfully");
         return ResponseEntity.ok(response);
     }
+    
+    // Public user fields; never the password
+    private static Map<String, Object> summary(User user) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("id", user.getId());
+        summary.put("name", user.getName());
+        summary.put("isAdmin", user.getIsAdmin());
+        summary.put("createdAt", user.getCreatedAt());
+        return summary;
+    }
 }
@@ -7,31 +7,54 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import com.sessions.repository.PdfSessionRepository;
+import com.sessions.service.OrgMetricsService;
 
 @RestController
 @RequestMapping("/api/dashboard")
 @CrossOrigin(origins = "*")
 public class DashboardController {
 
+    // "24h", "7d", "30d", "365d"...
+    private static final Pattern RANGE = Pattern.compile("(\\d{1,4})([hd])");
+
+    // Hourly buckets are kept for org.metrics.hourly-retention-days
+    private static final int MAX_HOURS = 24 * 31;
+
     @Autowired
-    private PdfSessionRepository sessionRepository;
+    private OrgMetricsService orgMetricsService;
 
     /**
-     * GET /api/dashboard/org-metrics
-     * Returns organization-wide metrics summary
+     * GET /api/dashboard/org-metrics?range=30d
+     * Returns organization-wide metrics summary over the last N hours ("24h")
+     * or days ("7d", "30d", "365d"), or all time ("all", the default)
      */
     @GetMapping("/org-metrics")
-    public ResponseEntity<Map<String, Object>> getOrgMetrics() {
-        // Hardcoded metrics for demo purposes
+    public ResponseEntity<Map<String, Object>> getOrgMetrics(
+            @RequestParam(defaultValue = "all") String range) {
+        OrgMetricsService.Totals totals;
+        if ("all".equalsIgnoreCase(range)) {
+            totals = orgMetricsService.totals(OrgMetricsService.DAY, 0);
+        } else {
+            Matcher matcher = RANGE.matcher(range);
+            int count = matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+            boolean hours = matcher.matches() && "h".equals(matcher.group(2));
+            if (count == 0 || (hours && count > MAX_HOURS)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid range: " + range));
+            }
+            totals = orgMetricsService.totals(hours ? OrgMetricsService.HOUR : OrgMetricsService.DAY, count);
+        }
+
         Map<String, Object> response = new HashMap<>();
-        response.put("totalPagesSaved", 2847);
-        response.put("totalInkSaved", 42.3);
-        response.put("avgOptimizingScore", 82);
-        response.put("totalSessions", 156);
+        response.put("range", range);
+        response.put("totalPagesSaved", totals.pagesSaved());
+        response.put("totalInkSaved", Math.round(totals.inkSaved() * 10) / 10.0);
+        response.put("avgOptimizingScore", Math.round(totals.avgScore()));
+        response.put("totalSessions", totals.sessionsAnalyzed());
+        response.put("totalOptimized", totals.sessionsOptimized());
 
         return ResponseEntity.ok(response);
     }
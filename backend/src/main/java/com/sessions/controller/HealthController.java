@@ -1,8 +1,15 @@
 package com.sessions.controller;
 
+import com.sessions.service.GeminiBulkhead;
+import com.sessions.service.GeminiCache;
+import com.sessions.service.PdfJobService;
+import com.sessions.service.PdfService;
+import com.sessions.service.UserCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -10,6 +17,21 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class HealthController {
     
+    @Autowired
+    private GeminiCache geminiCache;
+    
+    @Autowired
+    private GeminiBulkhead geminiBulkhead;
+    
+    @Autowired
+    private PdfJobService pdfJobService;
+    
+    @Autowired
+    private PdfService pdfService;
+    
+    @Autowired
+    private UserCache userCache;
+    
     /**
      * GET /api/health
      * Health check endpoint for frontend connectivity test
@@ -22,4 +44,43 @@ public class HealthController {
             "timestamp", System.currentTimeMillis()
         ));
     }
+    
+    /**
+     * GET /api/health/gemini-cache
+     * Gemini response cache hit/miss counters
+     */
+    @GetMapping("/health/gemini-cache")
+    public ResponseEntity<Map<String, Object>> geminiCacheStats() {
+        return ResponseEntity.ok(geminiCache.stats());
+    }
+    
+    /**
+     * GET /api/health/gemini-bulkhead
+     * Gemini concurrency, queue depth and rejection counters
+     */
+    @GetMapping("/health/gemini-bulkhead")
+    public ResponseEntity<Map<String, Object>> geminiBulkheadStats() {
+        return ResponseEntity.ok(geminiBulkhead.stats());
+    }
+    
+    /**
+     * GET /api/health/analysis-flights
+     * Analyze requests that joined a run already in flight, per session and per content
+     */
+    @GetMapping("/health/analysis-flights")
+    public ResponseEntity<Map<String, Object>> analysisFlightStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", pdfJobService.analyzeFlightStats());
+        stats.put("contents", pdfService.analysisFlightStats());
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * GET /api/health/user-cache
+     * User lookup cache hit rate and size
+     */
+    @GetMapping("/health/user-cache")
+    public ResponseEntity<Map<String, Object>> userCacheStats() {
+        return ResponseEntity.ok(userCache.stats());
+    }
 }
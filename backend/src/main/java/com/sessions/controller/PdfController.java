@@ -1,17 +1,33 @@
 package com.sessions.controller;
 
+import com.sessions.dto.CursorPage;
 import com.sessions.dto.OptimizeRequest;
 import com.sessions.model.PdfSession;
 import com.sessions.repository.PdfSessionRepository;
+import com.sessions.service.GeminiBulkhead;
+import com.sessions.service.GeminiBusyException;
+import com.sessions.service.KeysetPager;
+import com.sessions.service.PdfJobService;
 import com.sessions.service.PdfService;
+import com.sessions.service.SessionConflictException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/pdf")
@@ -21,9 +37,25 @@ public class PdfController {
     @Autowired
     private PdfService pdfService;
     
+    @Autowired
+    private PdfJobService pdfJobService;
+    
+    @Autowired
+    private GeminiBulkhead geminiBulkhead;
+    
     @Autowired
     private PdfSessionRepository pdfSessionRepository;
     
+    @Autowired
+    private KeysetPager keysetPager;
+    
+    // Session list projection
+    private static final List<String> LIST_FIELDS = List.of(
+            "originalFileName", "status", "pagesBefore", "optimizingScore", "createdAt");
+    private static final Set<String> LIST_FIELDS_ALLOWED = Set.of(
+            "originalFileName", "status", "pagesBefore", "inkBefore", "optimizingScore",
+            "pagesAfter", "inkAfter", "createdAt", "expiresAt");
+    
     /**
      * POST /api/pdf/upload
      * Upload a PDF file
@@ -64,58 +96,82 @@ public class PdfController {
     }
     
     /**
-     * POST /api/pdf/{id}/analyze
-     * Analyze an uploaded PDF
+     * POST /api/pdf/{id}/analyze?mode=exact
+     * Queue analysis of an uploaded PDF; exact mode measures CMYK coverage on every page.
+     * Returns 202 at once; poll /status until ANALYZED or ERROR.
+     * Returns 409 while the session is already analyzing or optimizing.
      */
     @PostMapping("/{id}/analyze")
-    public ResponseEntity<?> analyzePdf(@PathVariable String id) {
+    public ResponseEntity<?> analyzePdf(
+            @PathVariable String id,
+            @RequestParam(value = "mode", required = false) String mode) {
+        boolean exact = "exact".equalsIgnoreCase(mode);
+        // Shed load up front while Gemini is backed up, unless this analysis would not reach it
+        if (geminiBulkhead.isSaturated() && !pdfJobService.isAnalyzing(id, exact)
+                && pdfService.analysisNeedsGemini(id, exact)) {
+            return tooManyRequests(geminiBulkhead.retryAfterSeconds());
+        }
         try {
-            PdfSession session = pdfService.analyzePdf(id);
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("diagnosis", session.getSuggestions());
-            response.put("recommendations", session.getSuggestions());
-            response.put("estimatedSavings", Map.of(
-                    "pages", Math.max(0, (session.getPagesBefore() != null ? session.getPagesBefore() : 0) - 
-                            (session.getPagesAfter() != null ? session.getPagesAfter() : session.getPagesBefore())),
-                    "inkPercent", session.getInkBefore() != null ? Math.round((1 - 0.7) * 100) : 0
-            ));
-            response.put("inkBefore", session.getInkBefore());
-            response.put("pagesBefore", session.getPagesBefore());
-            response.put("optimizingScore", session.getOptimizingScore());
-            
-            return ResponseEntity.ok(response);
+            PdfSession session = pdfJobService.submitAnalyze(id, exact);
+            return accepted(session);
+        } catch (RejectedExecutionException e) {
+            return busy();
+        } catch (SessionConflictException e) {
+            return conflict(e);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to analyze PDF: " + e.getMessage()));
         }
     }
     
     /**
      * POST /api/pdf/{id}/optimize
-     * Optimize a PDF with given settings
+     * Queue optimization of a PDF with given settings.
+     * Returns 202 at once; poll /status until COMPLETE or ERROR.
+     * Returns 409 while the session is already analyzing or optimizing.
      */
     @PostMapping("/{id}/optimize")
     public ResponseEntity<?> optimizePdf(
             @PathVariable String id,
             @RequestBody OptimizeRequest request) {
         try {
-            PdfSession session = pdfService.optimizePdf(
+            PdfSession session = pdfJobService.submitOptimize(
                     id,
                     request.getInkSaverLevel(),
                     request.getPageSaverLevel(),
                     request.getPreserveQuality(),
                     request.getExcludeImages()
             );
-            
-            return ResponseEntity.ok(session);
+            return accepted(session);
+        } catch (RejectedExecutionException e) {
+            return busy();
+        } catch (SessionConflictException e) {
+            return conflict(e);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Failed to optimize PDF: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * GET /api/pdf/sessions?limit=20&cursor=...&fields=status,pagesBefore
+     * Newest sessions first, one page at a time with summary fields only;
+     * pass nextCursor back for the next page
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<?> listSessions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPager.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String fields) {
+        try {
+            List<String> projection = KeysetPager.selectFields(fields, LIST_FIELDS, LIST_FIELDS_ALLOWED);
+            CursorPage<PdfSession> page = keysetPager.page(PdfSession.class, cursor, limit, projection,
+                    PdfSession::getId, PdfSession::getCreatedAt);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("sessions", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
     
@@ -132,23 +188,81 @@ public class PdfController {
     
     /**
      * GET /api/pdf/{id}/original
-     * Download original PDF
+     * Download original PDF; streamed from disk with Range and conditional GET support
      */
     @GetMapping("/{id}/original")
-    public ResponseEntity<byte[]> getOriginalPdf(@PathVariable String id) {
+    public ResponseEntity<Resource> getOriginalPdf(@PathVariable String id) {
         try {
             PdfSession session = pdfSessionRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Session not found"));
             
-            byte[] pdfBytes = pdfService.getPdfBytes(id, "original");
+            return fileResponse(session, "original", MediaType.APPLICATION_PDF, session.getOriginalFileName());
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * GET /api/pdf/{id}/optimized
+     * Download optimized PDF; streamed from disk with Range and conditional GET support
+     */
+    @GetMapping("/{id}/optimized")
+    public ResponseEntity<Resource> getOptimizedPdf(@PathVariable String id) {
+        try {
+            PdfSession session = pdfSessionRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Session not found"));
+            
+            return fileResponse(session, "optimized", MediaType.APPLICATION_PDF,
+                    session.getOriginalFileName().replace(".pdf", "") + "_optimized.pdf");
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * POST /api/pdf/{id}/report/stream
+     * Generate the HTML report and stream it over chunked HTTP as Gemini writes it.
+     * The report is also saved, so GET /report works once the stream ends.
+     */
+    @PostMapping(value = "/{id}/report/stream", produces = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamReport(@PathVariable String id) {
+        PdfService.ReportWriter writer;
+        try {
+            // Waits for a Gemini slot before anything is sent, unless the report is cached
+            writer = pdfService.openReportStream(id);
+        } catch (GeminiBusyException e) {
+            return tooManyRequests(e.getRetryAfterSeconds());
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        
+        StreamingResponseBody body = writer::writeTo;
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .body(body);
+    }
+    
+    /**
+     * POST /api/pdf/{id}/report
+     * Generate the HTML report in one response and save it
+     */
+    @PostMapping("/{id}/report")
+    public ResponseEntity<String> generateReport(@PathVariable String id) {
+        try {
+            String htmlContent = pdfService.generateReport(id);
             
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDisposition(ContentDisposition.builder("attachment")
-                    .filename(session.getOriginalFileName())
-                    .build());
+            headers.setContentType(MediaType.TEXT_HTML);
             
-            return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+            return new ResponseEntity<>(htmlContent, headers, HttpStatus.OK);
+        } catch (GeminiBusyException e) {
+            return tooManyRequests(e.getRetryAfterSeconds());
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         } catch (IOException e) {
@@ -158,7 +272,7 @@ public class PdfController {
     
     /**
      * GET /api/pdf/{id}/report
-     * Get HTML report content
+     * Get a generated HTML report; 404 until one has been generated with POST
      */
     @GetMapping("/{id}/report")
     public ResponseEntity<String> getReport(@PathVariable String id) {
@@ -178,23 +292,17 @@ public class PdfController {
     
     /**
      * GET /api/pdf/{id}/report/download
-     * Download HTML report as file
+     * Download HTML report as file; streamed from disk with Range and conditional GET support.
+     * 404 until a report has been generated with POST.
      */
     @GetMapping("/{id}/report/download")
-    public ResponseEntity<byte[]> downloadReport(@PathVariable String id) {
+    public ResponseEntity<Resource> downloadReport(@PathVariable String id) {
         try {
             PdfSession session = pdfSessionRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Session not found"));
             
-            String htmlContent = pdfService.getReportHtml(id);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.TEXT_HTML);
-            headers.setContentDisposition(ContentDisposition.builder("attachment")
-                    .filename(session.getOriginalFileName().replace(".pdf", "") + "_report.html")
-                    .build());
-            
-            return new ResponseEntity<>(htmlContent.getBytes(), headers, HttpStatus.OK);
+            return fileResponse(session, "report", MediaType.TEXT_HTML,
+                    session.getOriginalFileName().replace(".pdf", "") + "_report.html");
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         } catch (IOException e) {
@@ -217,4 +325,56 @@ public class PdfController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+    
+    // ========== Private Helper Methods ==========
+    
+    /**
+     * File download as a Resource. Spring answers If-None-Match / If-Modified-Since
+     * with 304 from the ETag and Last-Modified set here, and Range with 206 partial
+     * content, so the file is never loaded into memory.
+     */
+    private ResponseEntity<Resource> fileResponse(PdfSession session, String type, MediaType mediaType,
+                                                  String fileName) throws IOException {
+        Path path = pdfService.getFilePath(session, type);
+        if (!Files.exists(path)) {
+            throw new RuntimeException("File not found for type: " + type);
+        }
+        
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                        .filename(fileName)
+                        .build()
+                        .toString())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(pdfService.getEntityTag(session, type))
+                .lastModified(Files.getLastModifiedTime(path).toMillis())
+                .body(new FileSystemResource(path));
+    }
+    
+    private ResponseEntity<?> accepted(PdfSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("sessionId", session.getId());
+        response.put("status", session.getStatus());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/pdf/" + session.getId() + "/status"))
+                .body(response);
+    }
+    
+    private <T> ResponseEntity<T> tooManyRequests(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .build();
+    }
+    
+    private ResponseEntity<?> conflict(SessionConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Session is busy", "status", e.getCurrentStatus()));
+    }
+    
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(Map.of("error", "Too many PDF jobs queued, try again shortly"));
+    }
 }
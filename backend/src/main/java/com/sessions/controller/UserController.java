@@ -1,11 +1,15 @@
 package com.sessions.controller;
 
 
+import com.sessions.dto.CursorPage;
+import com.sessions.dto.UserStats;
 import com.sessions.model.User;
-import com.sessions.model.PdfSession;
 import com.sessions.repository.UserRepository;
-import com.sessions.repository.PdfSessionRepository;
+import com.sessions.service.KeysetPager;
+import com.sessions.service.UserCache;
+import com.sessions.service.UserStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 
 @RestController
@@ -23,23 +28,45 @@ import java.util.Optional;
 @CrossOrigin(origins = "*")
 public class UserController {
     @Autowired
-    private PdfSessionRepository pdfSessionRepository;
+    private UserRepository userRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private UserStatsService userStatsService;
+    
+    @Autowired
+    private KeysetPager keysetPager;
+    
+    @Autowired
+    private UserCache userCache;
+    
+    // User list projection
+    private static final List<String> LIST_FIELDS = List.of("name", "isAdmin", "createdAt");
+    private static final Set<String> LIST_FIELDS_ALLOWED = Set.of("name", "isAdmin", "createdAt", "sessionIds");
     
     /**
-     * GET /api/users
+     * GET /api/users?limit=20&cursor=...&fields=name,isAdmin
+     * Newest first, one page at a time; pass nextCursor back for the next page.
+     * Only summary fields are returned unless others are asked for; never passwords.
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getUsers() {
-        List<User> users = userRepository.findAllByOrderByCreatedAtDesc();
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("users", users);
-        response.put("total", users.size());
-        
-        return ResponseEntity.ok(response);
+    public ResponseEntity<Map<String, Object>> getUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + KeysetPager.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String fields) {
+        try {
+            List<String> projection = KeysetPager.selectFields(fields, LIST_FIELDS, LIST_FIELDS_ALLOWED);
+            CursorPage<User> page = keysetPager.page(User.class, cursor, limit, projection,
+                    User::getId, User::getCreatedAt);
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("users", page.getItems());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("total", keysetPager.estimatedTotal(User.class));
+            
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     /**
@@ -47,9 +74,7 @@ public class UserController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<User> getUser(@PathVariable String id) {
-        // First try by MongoDB _id
-        return userRepository.findById(id)
-                .or(() -> userRepository.findByName(id))
+        return findUser(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -57,58 +82,35 @@ public class UserController {
     
 
 
+    /**
+     * GET /api/users/{id}/stats
+     * Page total, ink total and average score in one call
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<UserStats> getUserStats(@PathVariable String id) {
+        return findUser(id)
+                .map(user -> ResponseEntity.ok(userStatsService.statsFor(user)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * GET /api/users/pageTotal/{id}
      */
     @GetMapping("/pageTotal/{id}")
     public ResponseEntity<Integer> getUserPageTotal(@PathVariable String id) {
-        Integer totalPages = 0;
-
-        try {
-            Optional<User> user = userRepository.findById(id).or(() -> userRepository.findByName(id));
-
-            for (String sessionID : user.get().getSessionIds()) {
-                Optional<PdfSession> session = pdfSessionRepository.findById(sessionID);
-
-                try {
-                    totalPages += session.get().getPagesBefore();
-                } catch (Exception e) {
-                    System.err.printf("No session with ID %s.%n", sessionID);
-                }
-            }
-
-            return(new ResponseEntity<Integer>(totalPages, HttpStatus.OK));
-        } catch (Exception e) {
-            return(ResponseEntity.internalServerError().build());
-        }
+        return findUser(id)
+                .map(user -> ResponseEntity.ok(userStatsService.statsFor(user).getPageTotal()))
+                .orElse(ResponseEntity.notFound().build());
     }
-
-
     
     /**
      * GET /api/users/inkTotal/{id}
      */
     @GetMapping("/inkTotal/{id}")
     public ResponseEntity<Double> getUserInkTotal(@PathVariable String id) {
-        Double totalInk = 0.;
-
-        try {
-            Optional<User> user = userRepository.findById(id).or(() -> userRepository.findByName(id));
-
-            for (String sessionID : user.get().getSessionIds()) {
-                Optional<PdfSession> session = pdfSessionRepository.findById(sessionID);
-
-                try {
-                    totalInk += session.get().getInkBefore();
-                } catch (Exception e) {
-                    System.err.printf("No session with ID %s.%n", sessionID);
-                }
-            }
-
-            return(new ResponseEntity<Double>(totalInk, HttpStatus.OK));
-        } catch (Exception e) {
-            return(ResponseEntity.internalServerError().build());
-        }
+        return findUser(id)
+                .map(user -> ResponseEntity.ok(userStatsService.statsFor(user).getInkTotal()))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     
@@ -117,12 +119,18 @@ public class UserController {
      * Body: { name, isAdmin? }
      */
     @PostMapping
-    public ResponseEntity<User> createUser(@RequestBody User user) {
+    public ResponseEntity<?> createUser(@RequestBody User user) {
         user.setCreatedAt(Instant.now());
         if (user.getIsAdmin() == null) user.setIsAdmin(false);
         if (user.getSessionIds() == null) user.setSessionIds(new ArrayList<>());
         
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DuplicateKeyException e) {
+            return nameTaken(user.getName());
+        }
+        userCache.invalidate(savedUser);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedUser);
     }
     
@@ -130,19 +138,30 @@ public class UserController {
      * PUT /api/users/{id}
      */
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(
+    public ResponseEntity<?> updateUser(
             @PathVariable String id,
             @RequestBody User updates) {
         
-        return userRepository.findById(id)
-                .map(user -> {
-                    if (updates.getName() != null) user.setName(updates.getName());
-                    if (updates.getPassword() != null) user.setPassword(updates.getPassword());
-                    if (updates.getIsAdmin() != null) user.setIsAdmin(updates.getIsAdmin());
-                    if (updates.getSessionIds() != null) user.setSessionIds(updates.getSessionIds());
-                    return ResponseEntity.ok(userRepository.save(user));
-                })
-                .orElse(ResponseEntity.notFound().build());
+        Optional<User> existing = userRepository.findById(id);
+        if (existing.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        User user = existing.get();
+        // Under the old name too, if it changes
+        userCache.invalidate(user);
+        if (updates.getName() != null) user.setName(updates.getName());
+        if (updates.getPassword() != null) user.setPassword(updates.getPassword());
+        if (updates.getIsAdmin() != null) user.setIsAdmin(updates.getIsAdmin());
+        if (updates.getSessionIds() != null) user.setSessionIds(updates.getSessionIds());
+        User saved;
+        try {
+            saved = userRepository.save(user);
+        } catch (DuplicateKeyException e) {
+            return nameTaken(user.getName());
+        }
+        userCache.invalidate(saved);
+        if (updates.getSessionIds() != null) userStatsService.rebuild(saved);
+        return ResponseEntity.ok(saved);
     }
     
     /**
@@ -152,6 +171,8 @@ public class UserController {
     public ResponseEntity<Void> deleteUser(@PathVariable String id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            userCache.invalidate(id);
+            userStatsService.forget(id);
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -163,28 +184,9 @@ public class UserController {
      */
     @GetMapping("/avgScore/{id}")
     public ResponseEntity<Double> getAvgScore(@PathVariable String id) {
-        Double avgScore = 0.0;
-        int count = 0;
-
-        try {
-            Optional<User> user = userRepository.findById(id).or(() -> userRepository.findByName(id));
-
-            for (String sessionID : user.get().getSessionIds()) {
-                Optional<PdfSession> session = pdfSessionRepository.findById(sessionID);
-
-                try {
-                    avgScore += session.get().getOptimizingScore();
-                    count++;
-                    
-                } catch (Exception e) {
-                    System.err.printf("No session with ID %s.%n", sessionID);
-                }
-            }
-            avgScore = avgScore/count; 
-            return(new ResponseEntity<Double>(avgScore, HttpStatus.OK));
-        } catch (Exception e) {
-            return(ResponseEntity.internalServerError().build());
-        }
+        return findUser(id)
+                .map(user -> ResponseEntity.ok(userStatsService.statsFor(user).getAvgScore()))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     
@@ -201,12 +203,27 @@ public class UserController {
                 .map(user -> {
                     List<String> sessionIds = user.getSessionIds();
                     if (sessionIds == null) sessionIds = new ArrayList<>();
-                    if (!sessionIds.contains(sessionId)) {
-                        sessionIds.add(sessionId);
-                        user.setSessionIds(sessionIds);
+                    if (sessionIds.contains(sessionId)) {
+                        return ResponseEntity.ok(user);
                     }
-                    return ResponseEntity.ok(userRepository.save(user));
+                    sessionIds.add(sessionId);
+                    user.setSessionIds(sessionIds);
+                    User saved = userRepository.save(user);
+                    userCache.invalidate(saved);
+                    userStatsService.sessionLinked(id, sessionId);
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+    
+    private Optional<User> findUser(String id) {
+        // By MongoDB _id, then by name; usually from memory
+        return userCache.find(id);
+    }
+    
+    // The unique index on name rejected the write
+    private ResponseEntity<?> nameTaken(String name) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "User name already taken: " + name));
+    }
 }
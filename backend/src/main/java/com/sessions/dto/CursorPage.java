@@ -0,0 +1,21 @@
+package com.sessions.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing; nextCursor is null on the last page
+ */
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters
+    public List<T> getItems() { return items; }
+    
+    public String getNextCursor() { return nextCursor; }
+}
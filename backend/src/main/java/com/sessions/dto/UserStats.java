@@ -0,0 +1,24 @@
+package com.sessions.dto;
+
+/**
+ * Usage totals across a user's sessions
+ */
+public class UserStats {
+    private Integer pageTotal = 0;
+    private Double inkTotal = 0.0;
+    private Double avgScore = 0.0;
+    private Integer sessionCount = 0;
+    
+    // Getters and Setters
+    public Integer getPageTotal() { return pageTotal; }
+    public void setPageTotal(Integer pageTotal) { this.pageTotal = pageTotal; }
+    
+    public Double getInkTotal() { return inkTotal; }
+    public void setInkTotal(Double inkTotal) { this.inkTotal = inkTotal; }
+    
+    public Double getAvgScore() { return avgScore; }
+    public void setAvgScore(Double avgScore) { this.avgScore = avgScore; }
+    
+    public Integer getSessionCount() { return sessionCount; }
+    public void setSessionCount(Integer sessionCount) { this.sessionCount = sessionCount; }
+}
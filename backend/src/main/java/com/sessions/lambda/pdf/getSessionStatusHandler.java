@@ -0,0 +1,33 @@
+package com.sessions.lambda.pdf;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.sessions.lambda.util.LambdaResponses;
+import com.sessions.lambda.util.SessionQueries;
+
+/**
+ * GET /pdf/{id}/status
+ * Session status and metrics; what clients poll while analysis runs
+ */
+public class getSessionStatusHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    private static final SessionQueries SESSIONS = new SessionQueries();
+
+    @Override
+    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
+        String id = LambdaResponses.pathParameter(request, "id");
+        if (id == null || id.isEmpty()) {
+            return LambdaResponses.error(400, "Session id is required");
+        }
+        try {
+            return SESSIONS.find(id)
+                    .map(session -> LambdaResponses.ok(LambdaResponses.plain(session)))
+                    .orElseGet(() -> LambdaResponses.error(404, "Session not found"));
+        } catch (RuntimeException e) {
+            context.getLogger().log("Failed to load session " + id + ": " + e.getMessage());
+            return LambdaResponses.error(500, "Failed to load session");
+        }
+    }
+}
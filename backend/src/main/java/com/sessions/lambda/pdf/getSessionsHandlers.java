@@ -0,0 +1,40 @@
+package com.sessions.lambda.pdf;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.sessions.lambda.util.KeysetCursor;
+import com.sessions.lambda.util.LambdaResponses;
+import com.sessions.lambda.util.SessionQueries;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GET /pdf/sessions?limit=20&cursor=...
+ * Newest first, one page at a time; summary fields only.
+ */
+public class getSessionsHandlers implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    private static final SessionQueries SESSIONS = new SessionQueries();
+
+    @Override
+    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
+        try {
+            KeysetCursor.Page page = SESSIONS.list(
+                    LambdaResponses.queryParameter(request, "cursor"),
+                    LambdaResponses.intParameter(request, "limit", KeysetCursor.DEFAULT_LIMIT));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("sessions", page.items().stream().map(LambdaResponses::plain).toList());
+            response.put("nextCursor", page.nextCursor());
+            return LambdaResponses.ok(response);
+        } catch (IllegalArgumentException e) {
+            return LambdaResponses.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            context.getLogger().log("Failed to list sessions: " + e.getMessage());
+            return LambdaResponses.error(500, "Failed to list sessions");
+        }
+    }
+}
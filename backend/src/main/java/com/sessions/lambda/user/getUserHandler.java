@@ -0,0 +1,33 @@
+package com.sessions.lambda.user;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.sessions.lambda.util.LambdaResponses;
+import com.sessions.lambda.util.UserQueries;
+
+/**
+ * GET /users/{id}
+ * By id or name, without the password.
+ */
+public class getUserHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
+
+    private static final UserQueries USERS = new UserQueries();
+
+    @Override
+    public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
+        String id = LambdaResponses.pathParameter(request, "id");
+        if (id == null || id.isEmpty()) {
+            return LambdaResponses.error(400, "User id is required");
+        }
+        try {
+            return USERS.find(id)
+                    .map(user -> LambdaResponses.ok(LambdaResponses.plain(user)))
+                    .orElseGet(() -> LambdaResponses.error(404, "User not found"));
+        } catch (RuntimeException e) {
+            context.getLogger().log("Failed to load user " + id + ": " + e.getMessage());
+            return LambdaResponses.error(500, "Failed to load user");
+        }
+    }
+}
@@ -4,16 +4,38 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sessions.lambda.util.KeysetCursor;
+import com.sessions.lambda.util.LambdaResponses;
+import com.sessions.lambda.util.UserQueries;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * GET /users?limit=20&cursor=...
+ * Newest first, one page at a time; summary fields only, never passwords.
+ */
 public class getUsersHandlers implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>{
-     private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Built during init on the shared client; its pool connects on the first query
+    private static final UserQueries USERS = new UserQueries();
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context){
-        
-
+        try {
+            KeysetCursor.Page page = USERS.list(
+                    LambdaResponses.queryParameter(request, "cursor"),
+                    LambdaResponses.intParameter(request, "limit", KeysetCursor.DEFAULT_LIMIT));
 
+            Map<String, Object> response = new HashMap<>();
+            response.put("users", page.items().stream().map(LambdaResponses::plain).toList());
+            response.put("nextCursor", page.nextCursor());
+            return LambdaResponses.ok(response);
+        } catch (IllegalArgumentException e) {
+            return LambdaResponses.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            context.getLogger().log("Failed to list users: " + e.getMessage());
+            return LambdaResponses.error(500, "Failed to list users");
+        }
     }
-     
 }
@@ -0,0 +1,113 @@
+package com.sessions.lambda.util;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Local event-replay harness for the Lambda handlers.
+ *
+ *   java -cp target/classes:$(cat cp.txt) com.sessions.lambda.util.EventReplay \
+ *       com.sessions.lambda.user.getUsersHandlers lambda-events/get-users.json 200
+ *
+ * Cold is the handler's class initialization (the Lambda init phase, including
+ * the Mongo client) plus its first invoke; warm is the given number of further
+ * invokes on the same instance, reported as percentiles. Start a fresh JVM for
+ * each cold sample. Needs MONGODB_URI and MONGODB_DATABASE.
+ */
+public class EventReplay {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: EventReplay <handler class> <event.json> [warm invocations]");
+            System.exit(2);
+        }
+        int warmRuns = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        APIGatewayProxyRequestEvent event = MAPPER.readValue(new File(args[1]), APIGatewayProxyRequestEvent.class);
+
+        long start = System.nanoTime();
+        Class<?> type = Class.forName(args[0], true, EventReplay.class.getClassLoader());
+        RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> handler =
+                (RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent>) type.getDeclaredConstructor().newInstance();
+        long initNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        APIGatewayProxyResponseEvent first = handler.handleRequest(event, new ReplayContext(type.getSimpleName()));
+        long firstNanos = System.nanoTime() - start;
+
+        long[] warm = new long[warmRuns];
+        for (int i = 0; i < warmRuns; i++) {
+            start = System.nanoTime();
+            handler.handleRequest(event, new ReplayContext(type.getSimpleName()));
+            warm[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(warm);
+
+        System.out.println("status       " + first.getStatusCode());
+        System.out.println("body bytes   " + (first.getBody() != null ? first.getBody().getBytes(StandardCharsets.UTF_8).length : 0));
+        System.out.printf("init         %.1f ms%n", millis(initNanos));
+        System.out.printf("first invoke %.1f ms%n", millis(firstNanos));
+        System.out.printf("cold total   %.1f ms%n", millis(initNanos + firstNanos));
+        if (warmRuns > 0) {
+            System.out.printf("warm x%d     p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n", warmRuns,
+                    millis(percentile(warm, 50)), millis(percentile(warm, 90)),
+                    millis(percentile(warm, 99)), millis(warm[warmRuns - 1]));
+        }
+        MongoClientHandler.getClient().close();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Enough of the Lambda context for the handlers: a request id, a name and a stderr logger
+     */
+    private static final class ReplayContext implements Context {
+        private final String requestId = UUID.randomUUID().toString();
+        private final String functionName;
+
+        private ReplayContext(String functionName) {
+            this.functionName = functionName;
+        }
+
+        @Override public String getAwsRequestId() { return requestId; }
+        @Override public String getLogGroupName() { return "/aws/lambda/" + functionName; }
+        @Override public String getLogStreamName() { return "local"; }
+        @Override public String getFunctionName() { return functionName; }
+        @Override public String getFunctionVersion() { return "$LATEST"; }
+        @Override public String getInvokedFunctionArn() { return "arn:aws:lambda:local:0:function:" + functionName; }
+        @Override public CognitoIdentity getIdentity() { return null; }
+        @Override public ClientContext getClientContext() { return null; }
+        @Override public int getRemainingTimeInMillis() { return 30_000; }
+        @Override public int getMemoryLimitInMB() { return 512; }
+
+        @Override
+        public LambdaLogger getLogger() {
+            return new LambdaLogger() {
+                @Override public void log(String message) { System.err.println(message); }
+                @Override public void log(byte[] message) { System.err.println(new String(message, StandardCharsets.UTF_8)); }
+            };
+        }
+    }
+}
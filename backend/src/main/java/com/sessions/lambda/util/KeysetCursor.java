@@ -0,0 +1,82 @@
+package com.sessions.lambda.util;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keyset pagination over (createdAt desc, _id desc) for the Lambda handlers.
+ * Cursors use the same format as the Spring API's KeysetPager, so a client can
+ * page through either one with the same nextCursor.
+ */
+public class KeysetCursor {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * One page of documents and the cursor for the next, null on the last page
+     */
+    public record Page(List<Document> items, String nextCursor) {}
+
+    /**
+     * Newest-first page of collection after the cursor (null for the first page), reading only fields
+     */
+    public static Page page(MongoCollection<Document> collection, String cursor, int limit, List<String> fields) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        Bson filter = new Document();
+        if (cursor != null && !cursor.isEmpty()) {
+            filter = after(cursor);
+        }
+        // The cursor is built from createdAt, so it is always read
+        List<String> projection = new ArrayList<>(fields);
+        if (!projection.contains("createdAt")) {
+            projection.add("createdAt");
+        }
+
+        // One extra row tells us whether another page follows
+        List<Document> rows = collection.find(filter)
+                .sort(Sorts.descending("createdAt", "_id"))
+                .projection(Projections.include(projection))
+                .limit(size + 1)
+                .into(new ArrayList<>());
+        if (rows.size() <= size) {
+            return new Page(rows, null);
+        }
+        List<Document> items = rows.subList(0, size);
+        Document last = items.get(size - 1);
+        return new Page(items, encode(last.getDate("createdAt"), last.getObjectId("_id")));
+    }
+
+    private static Bson after(String cursor) {
+        Date createdAt;
+        ObjectId id;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.indexOf(':');
+            createdAt = new Date(Long.parseLong(raw.substring(0, split)));
+            id = new ObjectId(raw.substring(split + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return Filters.or(
+                Filters.lt("createdAt", createdAt),
+                Filters.and(Filters.eq("createdAt", createdAt), Filters.lt("_id", id)));
+    }
+
+    private static String encode(Date createdAt, ObjectId id) {
+        String raw = createdAt.getTime() + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
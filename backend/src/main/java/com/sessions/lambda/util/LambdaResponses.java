@@ -0,0 +1,105 @@
+package com.sessions.lambda.util;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * API Gateway responses for the Lambda handlers, shaped like the Spring API's:
+ * JSON bodies, _id as "id", ObjectIds as hex and dates as ISO-8601.
+ */
+public class LambdaResponses {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Map<String, String> HEADERS = Map.of(
+            "Content-Type", "application/json",
+            "Access-Control-Allow-Origin", "*");
+
+    static {
+        // Load the serializers during init instead of on the first invoke
+        json(plain(new Document("_id", new ObjectId()).append("createdAt", new Date())));
+    }
+
+    public static APIGatewayProxyResponseEvent ok(Object body) {
+        return status(200, body);
+    }
+
+    public static APIGatewayProxyResponseEvent error(int statusCode, String message) {
+        return status(statusCode, Map.of("error", message));
+    }
+
+    public static APIGatewayProxyResponseEvent status(int statusCode, Object body) {
+        return new APIGatewayProxyResponseEvent()
+                .withStatusCode(statusCode)
+                .withHeaders(HEADERS)
+                .withBody(json(body));
+    }
+
+    public static String pathParameter(APIGatewayProxyRequestEvent request, String name) {
+        Map<String, String> params = request.getPathParameters();
+        return params != null ? params.get(name) : null;
+    }
+
+    public static String queryParameter(APIGatewayProxyRequestEvent request, String name) {
+        Map<String, String> params = request.getQueryStringParameters();
+        return params != null ? params.get(name) : null;
+    }
+
+    public static int intParameter(APIGatewayProxyRequestEvent request, String name, int defaultValue) {
+        String value = queryParameter(request, name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * A driver document as plain JSON-ready values
+     */
+    public static Map<String, Object> plain(Document document) {
+        Map<String, Object> plain = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            String key = "_id".equals(entry.getKey()) ? "id" : entry.getKey();
+            plain.put(key, plainValue(entry.getValue()));
+        }
+        return plain;
+    }
+
+    private static Object plainValue(Object value) {
+        if (value instanceof ObjectId id) {
+            return id.toHexString();
+        }
+        if (value instanceof Date date) {
+            return date.toInstant().toString();
+        }
+        if (value instanceof Document document) {
+            return plain(document);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> plain = new ArrayList<>(list.size());
+            for (Object item : list) {
+                plain.add(plainValue(item));
+            }
+            return plain;
+        }
+        return value;
+    }
+
+    private static String json(Object body) {
+        try {
+            return MAPPER.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response is not serializable", e);
+        }
+    }
+}
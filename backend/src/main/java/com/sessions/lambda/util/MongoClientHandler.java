@@ -1,46 +1,76 @@
 package com.sessions.lambda.util;
 
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import org.bson.Document;
 
-public class MongoClientHandler {
+import java.util.concurrent.TimeUnit;
 
-    private static MongoClient mongoClient;
-    private static MongoDatabase database;
+/**
+ * Shared MongoDB client for the Lambda handlers.
+ * Built once in static init, so it is ready during the init phase rather than
+ * on the first invoke, and is safe to capture in a snapshot: the pool opens no
+ * connections until first use, and retryable reads/writes cover a connection
+ * that went stale across a restore. The pool is sized for a container that
+ * serves one request at a time.
+ */
+public class MongoClientHandler {
 
     private static final String ENV_MONGODB_URI = "MONGODB_URI";
     private static final String ENV_MONGODB_DATABASE = "MONGODB_DATABASE";
 
+    private static final MongoClient mongoClient;
+    private static final MongoDatabase database;
+
+    static {
+        MongoClientSettings settings = MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(requireEnv(ENV_MONGODB_URI)))
+                // One invoke at a time; the second connection covers a retry while a dead one closes
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(0)
+                        .maxSize(2)
+                        .maxConnectionIdleTime(60, TimeUnit.SECONDS))
+                // Fail inside the function timeout rather than at it
+                .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(5, TimeUnit.SECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(5, TimeUnit.SECONDS)
+                        .readTimeout(10, TimeUnit.SECONDS))
+                .retryReads(true)
+                .retryWrites(true)
+                .build();
+        mongoClient = MongoClients.create(settings);
+        database = mongoClient.getDatabase(requireEnv(ENV_MONGODB_DATABASE));
+    }
+
     public static MongoClient getClient() {
-        if (mongoClient == null) {
-            String uri = System.getenv(ENV_MONGODB_URI);
-            if (uri == null || uri.isEmpty()) {
-                throw new RuntimeException("MONGODB_URI environment variable is not set");
-            }
-            mongoClient = MongoClients.create(uri);
-        }
         return mongoClient;
     }
 
     public static MongoDatabase getDatabase() {
-        if (database == null) {
-            String dbName = System.getenv(ENV_MONGODB_DATABASE);
-            if (dbName == null || dbName.isEmpty()) {
-                throw new RuntimeException("MONGODB_DATABASE environment variable is not set");
-            }
-            database = getClient().getDatabase(dbName);
-        }
         return database;
     }
 
     public static MongoCollection<Document> getUsersCollection() {
-        return getDatabase().getCollection("Users");
+        return database.getCollection("Users");
     }
 
     public static MongoCollection<Document> getPdfSessionsCollection() {
-        return getDatabase().getCollection("PdfSessions");
+        return database.getCollection("PdfSessions");
+    }
+
+    public static MongoCollection<Document> getUserUsageCollection() {
+        return database.getCollection("UserUsage");
+    }
+
+    private static String requireEnv(String name) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            throw new RuntimeException(name + " environment variable is not set");
+        }
+        return value;
     }
 }
@@ -0,0 +1,36 @@
+package com.sessions.lambda.util;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only PDF session queries for the Lambda handlers, on the plain driver
+ */
+public class SessionQueries {
+
+    // Same summary projection as GET /api/pdf/sessions
+    public static final List<String> LIST_FIELDS = List.of(
+            "originalFileName", "status", "pagesBefore", "optimizingScore", "createdAt");
+
+    private final MongoCollection<Document> sessions;
+
+    public SessionQueries() {
+        this.sessions = MongoClientHandler.getPdfSessionsCollection();
+    }
+
+    public KeysetCursor.Page list(String cursor, int limit) {
+        return KeysetCursor.page(sessions, cursor, limit, LIST_FIELDS);
+    }
+
+    public Optional<Document> find(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(sessions.find(Filters.eq("_id", new ObjectId(id))).first());
+    }
+}
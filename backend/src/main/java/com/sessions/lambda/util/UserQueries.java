@@ -0,0 +1,100 @@
+package com.sessions.lambda.util;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only user queries for the Lambda handlers, on the plain driver.
+ * Passwords are never read. Usage totals come from the UserUsage counters the
+ * Spring service maintains; a user without one is summed from their sessions
+ * but not stored, so the counters keep a single writer.
+ */
+public class UserQueries {
+
+    // Same summary projection as GET /api/users
+    public static final List<String> LIST_FIELDS = List.of("name", "isAdmin", "createdAt");
+
+    private final MongoCollection<Document> users;
+    private final MongoCollection<Document> sessions;
+    private final MongoCollection<Document> usage;
+
+    public UserQueries() {
+        this.users = MongoClientHandler.getUsersCollection();
+        this.sessions = MongoClientHandler.getPdfSessionsCollection();
+        this.usage = MongoClientHandler.getUserUsageCollection();
+    }
+
+    public KeysetCursor.Page list(String cursor, int limit) {
+        return KeysetCursor.page(users, cursor, limit, LIST_FIELDS);
+    }
+
+    /**
+     * By MongoDB _id, then by name (unique index)
+     */
+    public Optional<Document> find(String idOrName) {
+        if (ObjectId.isValid(idOrName)) {
+            Document user = users.find(Filters.eq("_id", new ObjectId(idOrName)))
+                    .projection(Projections.exclude("password"))
+                    .first();
+            if (user != null) {
+                return Optional.of(user);
+            }
+        }
+        return Optional.ofNullable(users.find(Filters.eq("name", idOrName))
+                .projection(Projections.exclude("password"))
+                .first());
+    }
+
+    /**
+     * Page total, ink total, average score and session count, shaped like UserStats
+     */
+    public Map<String, Object> stats(Document user) {
+        Document totals = usage.find(Filters.eq("_id", user.getObjectId("_id"))).first();
+        if (totals == null) {
+            totals = sum(user.getList("sessionIds", String.class));
+        }
+
+        long pageTotal = number(totals, "pageTotal").longValue();
+        double inkTotal = number(totals, "inkTotal").doubleValue();
+        long scoreSum = number(totals, "scoreSum").longValue();
+        long analyzed = number(totals, "sessionsAnalyzed").longValue();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pageTotal", pageTotal);
+        stats.put("inkTotal", inkTotal);
+        stats.put("avgScore", analyzed > 0 ? (double) scoreSum / analyzed : 0.0);
+        stats.put("sessionCount", analyzed);
+        return stats;
+    }
+
+    private Document sum(List<String> sessionIds) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return new Document();
+        }
+        List<ObjectId> ids = sessionIds.stream().filter(ObjectId::isValid).map(ObjectId::new).toList();
+        Document totals = sessions.aggregate(List.of(
+                Aggregates.match(Filters.and(Filters.in("_id", ids), Filters.ne("optimizingScore", null))),
+                Aggregates.group(null,
+                        Accumulators.sum("pageTotal", "$pagesBefore"),
+                        Accumulators.sum("inkTotal", "$inkBefore"),
+                        Accumulators.sum("scoreSum", "$optimizingScore"),
+                        Accumulators.sum("sessionsAnalyzed", 1))))
+                .first();
+        return totals != null ? totals : new Document();
+    }
+
+    private static Number number(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number number ? number : 0;
+    }
+}
@@ -0,0 +1,47 @@
+package com.sessions.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.Indexed;
+import java.time.Instant;
+
+/**
+ * A cached Gemini text response, keyed by content hash, model and prompt version
+ */
+@Document(collection = "GeminiResponses")
+public class GeminiResponse {
+
+    @Id
+    private String id;
+
+    private String text;
+
+    private Instant createdAt;
+
+    // Mongo drops the document once this passes
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expiresAt;
+
+    public GeminiResponse() {
+    }
+
+    public GeminiResponse(String id, String text, Instant createdAt, Instant expiresAt) {
+        this.id = id;
+        this.text = text;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
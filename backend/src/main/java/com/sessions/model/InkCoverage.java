@@ -0,0 +1,84 @@
+package com.sessions.model;
+
+import java.util.List;
+
+/**
+ * Full-document CMYK ink coverage, measured on every page.
+ * Channel values are the fraction of the page area covered (0-1);
+ * total area coverage is the sum of the four channels (0-4).
+ */
+public class InkCoverage {
+
+    private Integer dpi;
+
+    // Document averages
+    private Double cyan;
+    private Double magenta;
+    private Double yellow;
+    private Double black;
+    private Double totalAreaCoverage;
+    private Double maxTotalAreaCoverage;
+
+    private List<Page> pages;
+
+    /**
+     * Coverage for a single page
+     */
+    public static class Page {
+        private Integer pageNumber;
+        private Double cyan;
+        private Double magenta;
+        private Double yellow;
+        private Double black;
+        private Double totalAreaCoverage;
+
+        // 1 - luma, the same measure as inkBefore
+        private Double darkness;
+
+        public Integer getPageNumber() { return pageNumber; }
+        public void setPageNumber(Integer pageNumber) { this.pageNumber = pageNumber; }
+
+        public Double getCyan() { return cyan; }
+        public void setCyan(Double cyan) { this.cyan = cyan; }
+
+        public Double getMagenta() { return magenta; }
+        public void setMagenta(Double magenta) { this.magenta = magenta; }
+
+        public Double getYellow() { return yellow; }
+        public void setYellow(Double yellow) { this.yellow = yellow; }
+
+        public Double getBlack() { return black; }
+        public void setBlack(Double black) { this.black = black; }
+
+        public Double getTotalAreaCoverage() { return totalAreaCoverage; }
+        public void setTotalAreaCoverage(Double totalAreaCoverage) { this.totalAreaCoverage = totalAreaCoverage; }
+
+        public Double getDarkness() { return darkness; }
+        public void setDarkness(Double darkness) { this.darkness = darkness; }
+    }
+
+    // Getters and Setters
+    public Integer getDpi() { return dpi; }
+    public void setDpi(Integer dpi) { this.dpi = dpi; }
+
+    public Double getCyan() { return cyan; }
+    public void setCyan(Double cyan) { this.cyan = cyan; }
+
+    public Double getMagenta() { return magenta; }
+    public void setMagenta(Double magenta) { this.magenta = magenta; }
+
+    public Double getYellow() { return yellow; }
+    public void setYellow(Double yellow) { this.yellow = yellow; }
+
+    public Double getBlack() { return black; }
+    public void setBlack(Double black) { this.black = black; }
+
+    public Double getTotalAreaCoverage() { return totalAreaCoverage; }
+    public void setTotalAreaCoverage(Double totalAreaCoverage) { this.totalAreaCoverage = totalAreaCoverage; }
+
+    public Double getMaxTotalAreaCoverage() { return maxTotalAreaCoverage; }
+    public void setMaxTotalAreaCoverage(Double maxTotalAreaCoverage) { this.maxTotalAreaCoverage = maxTotalAreaCoverage; }
+
+    public List<Page> getPages() { return pages; }
+    public void setPages(List<Page> pages) { this.pages = pages; }
+}
@@ -0,0 +1,59 @@
+package com.sessions.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.Instant;
+
+/**
+ * Organization-wide totals for one hour or one day, keyed "{granularity}:{start}"
+ */
+@Document(collection = "OrgMetrics")
+@CompoundIndex(name = "granularity_start", def = "{'granularity': 1, 'start': 1}")
+public class OrgMetricsBucket {
+
+    @Id
+    private String id;
+
+    private String granularity;  // "hour" or "day"
+    private Instant start;
+
+    private Long pagesSaved = 0L;
+    private Double inkSaved = 0.0;
+    private Long scoreSum = 0L;
+    private Long sessionsAnalyzed = 0L;
+    private Long sessionsOptimized = 0L;
+
+    // Hourly buckets are only kept for a while; daily buckets never expire
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expiresAt;
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+
+    public Instant getStart() { return start; }
+    public void setStart(Instant start) { this.start = start; }
+
+    public Long getPagesSaved() { return pagesSaved; }
+    public void setPagesSaved(Long pagesSaved) { this.pagesSaved = pagesSaved; }
+
+    public Double getInkSaved() { return inkSaved; }
+    public void setInkSaved(Double inkSaved) { this.inkSaved = inkSaved; }
+
+    public Long getScoreSum() { return scoreSum; }
+    public void setScoreSum(Long scoreSum) { this.scoreSum = scoreSum; }
+
+    public Long getSessionsAnalyzed() { return sessionsAnalyzed; }
+    public void setSessionsAnalyzed(Long sessionsAnalyzed) { this.sessionsAnalyzed = sessionsAnalyzed; }
+
+    public Long getSessionsOptimized() { return sessionsOptimized; }
+    public void setSessionsOptimized(Long sessionsOptimized) { this.sessionsOptimized = sessionsOptimized; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,71 @@
+package com.sessions.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A stored PDF, keyed by the SHA-256 of its bytes.
+ * Sessions uploading identical content share one file and one analysis.
+ */
+@Document(collection = "PdfContents")
+public class PdfContent {
+
+    @Id
+    private String id;  // SHA-256, lowercase hex
+
+    private String filePath;
+    private Long size;
+
+    // Number of sessions referencing this file
+    private Integer refCount;
+
+    // Cached analysis
+    private Integer pagesBefore;
+    private Double inkBefore;
+    private InkCoverage inkCoverage;  // exact mode only
+    private Integer optimizingScore;
+    private List<String> suggestions;
+    private Instant analyzedAt;
+
+    private Instant createdAt;
+    private Instant lastReferencedAt;  // last upload that took a reference
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+
+    public Integer getPagesBefore() { return pagesBefore; }
+    public void setPagesBefore(Integer pagesBefore) { this.pagesBefore = pagesBefore; }
+
+    public Double getInkBefore() { return inkBefore; }
+    public void setInkBefore(Double inkBefore) { this.inkBefore = inkBefore; }
+
+    public InkCoverage getInkCoverage() { return inkCoverage; }
+    public void setInkCoverage(InkCoverage inkCoverage) { this.inkCoverage = inkCoverage; }
+
+    public Integer getOptimizingScore() { return optimizingScore; }
+    public void setOptimizingScore(Integer optimizingScore) { this.optimizingScore = optimizingScore; }
+
+    public List<String> getSuggestions() { return suggestions; }
+    public void setSuggestions(List<String> suggestions) { this.suggestions = suggestions; }
+
+    public Instant getAnalyzedAt() { return analyzedAt; }
+    public void setAnalyzedAt(Instant analyzedAt) { this.analyzedAt = analyzedAt; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getLastReferencedAt() { return lastReferencedAt; }
+    public void setLastReferencedAt(Instant lastReferencedAt) { this.lastReferencedAt = lastReferencedAt; }
+}
@@ -2,11 +2,13 @@ package com.sessions.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import java.time.Instant;
 import java.util.List;
 
 @Document(collection = "PdfSessions")
+@CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}")  // keyset paging
 public class PdfSession {
     
     @Id
@@ -16,10 +18,21 @@ public class PdfSession {
     private String originalFileName;
     private String originalFilePath;
     private String optimizedFilePath;
+    private String reportFilePath;
+    // SHA-256 of the optimized and report files, taken when they are written (download ETags)
+    private String optimizedHash;
+    private String reportHash;
+    @Indexed
+    private String contentHash;  // SHA-256 of the original, see PdfContent
+    
+    // Gemini Files API handle for the original, reused across prompts
+    private String geminiFileUri;
+    private Instant geminiFileExpiresAt;
     
     // Metrics - Before
     private Integer pagesBefore;
     private Double inkBefore;
+    private InkCoverage inkCoverage;  // exact mode only
     
     // Metrics - After
     private Integer pagesAfter;
@@ -38,9 +51,11 @@ public class PdfSession {
     
     // Status: UPLOADED, ANALYZING, ANALYZED, OPTIMIZING, COMPLETE, ERROR
     private String status;
+    private Instant statusChangedAt;
     
     @Indexed
     private Instant createdAt;
+    @Indexed
     private Instant expiresAt;
     
     // Constructors
@@ -63,12 +78,33 @@ public class PdfSession {
     public String getOptimizedFilePath() { return optimizedFilePath; }
     public void setOptimizedFilePath(String optimizedFilePath) { this.optimizedFilePath = optimizedFilePath; }
     
+    public String getReportFilePath() { return reportFilePath; }
+    public void setReportFilePath(String reportFilePath) { this.reportFilePath = reportFilePath; }
+    
+    public String getOptimizedHash() { return optimizedHash; }
+    public void setOptimizedHash(String optimizedHash) { this.optimizedHash = optimizedHash; }
+    
+    public String getReportHash() { return reportHash; }
+    public void setReportHash(String reportHash) { this.reportHash = reportHash; }
+    
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
+    public String getGeminiFileUri() { return geminiFileUri; }
+    public void setGeminiFileUri(String geminiFileUri) { this.geminiFileUri = geminiFileUri; }
+    
+    public Instant getGeminiFileExpiresAt() { return geminiFileExpiresAt; }
+    public void setGeminiFileExpiresAt(Instant geminiFileExpiresAt) { this.geminiFileExpiresAt = geminiFileExpiresAt; }
+    
     public Integer getPagesBefore() { return pagesBefore; }
     public void setPagesBefore(Integer pagesBefore) { this.pagesBefore = pagesBefore; }
     
     public Double getInkBefore() { return inkBefore; }
     public void setInkBefore(Double inkBefore) { this.inkBefore = inkBefore; }
     
+    public InkCoverage getInkCoverage() { return inkCoverage; }
+    public void setInkCoverage(InkCoverage inkCoverage) { this.inkCoverage = inkCoverage; }
+    
     public Integer getPagesAfter() { return pagesAfter; }
     public void setPagesAfter(Integer pagesAfter) { this.pagesAfter = pagesAfter; }
     
@@ -99,6 +135,9 @@ public class PdfSession {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     
+    public Instant getStatusChangedAt() { return statusChangedAt; }
+    public void setStatusChangedAt(Instant statusChangedAt) { this.statusChangedAt = statusChangedAt; }
+    
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
     
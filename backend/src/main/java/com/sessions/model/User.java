@@ -2,19 +2,24 @@ package com.sessions.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import java.time.Instant;
 import java.util.List;
 
 @Document(collection = "Users")
+@CompoundIndex(name = "createdAt_id", def = "{'createdAt': -1, '_id': -1}")  // keyset paging
 public class User {
     
     @Id
     private String id;  // MongoDB ObjectId as string
     
+    @Indexed(unique = true)
     private String name;
     private String password;
     private Boolean isAdmin;
     
+    @Indexed
     private List<String> sessionIds;  // references to sessions._id
     
     private Instant createdAt;
@@ -0,0 +1,46 @@
+package com.sessions.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.Instant;
+
+/**
+ * Running usage totals for one user, keyed by user id.
+ * Kept apart from User so whole-document user saves cannot clobber the counters.
+ */
+@Document(collection = "UserUsage")
+public class UserUsage {
+
+    @Id
+    private String id;  // Users._id
+
+    private Long pageTotal = 0L;
+    private Double inkTotal = 0.0;
+    private Long scoreSum = 0L;
+    private Long sessionsAnalyzed = 0L;
+
+    private Instant updatedAt;
+    private Long version;  // bumped by every write, see UserStatsService.rebuild
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Long getPageTotal() { return pageTotal; }
+    public void setPageTotal(Long pageTotal) { this.pageTotal = pageTotal; }
+
+    public Double getInkTotal() { return inkTotal; }
+    public void setInkTotal(Double inkTotal) { this.inkTotal = inkTotal; }
+
+    public Long getScoreSum() { return scoreSum; }
+    public void setScoreSum(Long scoreSum) { this.scoreSum = scoreSum; }
+
+    public Long getSessionsAnalyzed() { return sessionsAnalyzed; }
+    public void setSessionsAnalyzed(Long sessionsAnalyzed) { this.sessionsAnalyzed = sessionsAnalyzed; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -0,0 +1,9 @@
+package com.sessions.repository;
+
+import com.sessions.model.GeminiResponse;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GeminiResponseRepository extends MongoRepository<GeminiResponse, String> {
+}
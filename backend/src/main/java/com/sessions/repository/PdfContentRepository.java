@@ -0,0 +1,9 @@
+package com.sessions.repository;
+
+import com.sessions.model.PdfContent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PdfContentRepository extends MongoRepository<PdfContent, String> {
+}
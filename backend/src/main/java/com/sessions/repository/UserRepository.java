@@ -11,6 +11,4 @@ public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByName(String name);
 
     List<User> findByIsAdmin(Boolean isAdmin);
-    
-    List<User> findAllByOrderByCreatedAtDesc();
 }
@@ -0,0 +1,132 @@
+package com.sessions.service;
+
+import com.sessions.model.User;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Stateless signed auth tokens.
+ * A token is base64url("{userId}:{admin}:{expiresAtEpochSecond}") + "." +
+ * base64url(HMAC-SHA256 of that payload), so it can be checked in memory on
+ * every request without a user lookup. Tokens stay valid until they expire;
+ * changing auth.token.secret revokes all of them at once. Every node must share
+ * the secret, so startup fails without one unless the local or dev profile is active.
+ */
+@Service
+public class AuthTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthTokens.class);
+
+    // Request attribute holding the verified Principal, see AuthTokenFilter
+    public static final String PRINCIPAL_ATTRIBUTE = "com.sessions.auth.principal";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Base64; blank is only allowed under the local/dev profiles and generates a key per process
+    @Value("${auth.token.secret:}")
+    private String secret;
+
+    @Value("${auth.token.ttl-hours:12}")
+    private long ttlHours;
+
+    @Autowired
+    private Environment environment;
+
+    private SecretKeySpec key;
+
+    /**
+     * Who a verified token speaks for
+     */
+    public record Principal(String userId, boolean admin, Instant expiresAt) {}
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            if (!environment.acceptsProfiles(Profiles.of("local", "dev"))) {
+                throw new IllegalStateException("auth.token.secret (AUTH_TOKEN_SECRET) must be set; "
+                        + "a per-process key would make other nodes reject every token");
+            }
+            log.warn("auth.token.secret is not set; using a random key, tokens will not survive a restart "
+                    + "or work on another node");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret.trim());
+        }
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Sign a token for a user
+     */
+    public String issue(User user) {
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(ttlHours));
+        String payload = user.getId() + ":" + (Boolean.TRUE.equals(user.getIsAdmin()) ? 1 : 0)
+                + ":" + expiresAt.getEpochSecond();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * The principal for a well-formed, correctly signed, unexpired token; null otherwise
+     */
+    public Principal verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            // Constant-time compare
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                return null;
+            }
+
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3) {
+                return null;
+            }
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[2]));
+            if (!expiresAt.isAfter(Instant.now())) {
+                return null;
+            }
+            return new Principal(parts[0], "1".equals(parts[1]), expiresAt);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            // Mac instances are not thread-safe and cheap to create
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+}
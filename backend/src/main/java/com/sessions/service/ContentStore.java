@@ -0,0 +1,228 @@
+package com.sessions.service;
+
+import com.sessions.model.PdfContent;
+import com.sessions.model.PdfSession;
+import com.sessions.repository.PdfContentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Content-addressed PDF storage.
+ * Uploads are hashed while they stream to disk and stored once as {sha256}.pdf;
+ * a reference count tracks how many sessions point at each file. Analysis
+ * results are cached on the same record, so identical uploads are analyzed once.
+ * The lock stripes only order work on this node. Across nodes, a record is
+ * removed only by a conditional findAndRemove, and its file is moved aside and
+ * re-checked against the collection before it is deleted; a store puts its own
+ * copy back if the file went missing after it took its reference.
+ */
+@Service
+public class ContentStore {
+
+    // File moves and deletes for one hash on this node must not interleave
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PdfContentRepository pdfContentRepository;
+
+    @Value("${pdf.storage.path:./pdf-storage}")
+    private String storagePath;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ContentStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Stream content to disk, hashing it on the way, and take a reference to it.
+     * Content already in the store is not written twice.
+     */
+    public PdfContent store(InputStream in) throws IOException {
+        Path storageDir = Paths.get(storagePath);
+        if (!Files.exists(storageDir)) {
+            Files.createDirectories(storageDir);
+        }
+
+        Path temp = Files.createTempFile(storageDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream hashing = new DigestInputStream(in, digest)) {
+                Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = storageDir.resolve(hash + ".pdf");
+
+            synchronized (lockFor(hash)) {
+                Update update = new Update()
+                        .inc("refCount", 1)
+                        .setOnInsert("filePath", target.toString())
+                        .setOnInsert("size", Files.size(temp))
+                        .setOnInsert("createdAt", Instant.now())
+                        .set("lastReferencedAt", Instant.now());
+                PdfContent content = mongoTemplate.findAndModify(byHash(hash), update,
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), PdfContent.class);
+                // Checked after the reference is taken, so a release elsewhere that
+                // unlinked the file without seeing this reference cannot leave it missing
+                if (!Files.exists(target)) {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                return content;
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Drop a reference; the file and its cached analysis go with the last one
+     */
+    public void release(String hash) throws IOException {
+        synchronized (lockFor(hash)) {
+            PdfContent content = mongoTemplate.findAndModify(byHash(hash), new Update().inc("refCount", -1),
+                    FindAndModifyOptions.options().returnNew(true), PdfContent.class);
+            if (content == null || content.getRefCount() > 0) {
+                return;
+            }
+            // Only while still unreferenced; a store on another node may have taken a reference since
+            PdfContent removed = mongoTemplate.findAndRemove(
+                    Query.query(Criteria.where("_id").is(hash).and("refCount").lte(0)), PdfContent.class);
+            if (removed != null) {
+                unlink(hash, Paths.get(removed.getFilePath()));
+            }
+        }
+    }
+
+    /**
+     * Remove content that no session references, as found by the orphan sweep.
+     * Content referenced by an upload since cutoff is left alone, since that
+     * upload's session may not be saved yet; returns true if anything was removed.
+     */
+    public boolean reclaim(String hash, Instant cutoff) throws IOException {
+        synchronized (lockFor(hash)) {
+            PdfContent content = pdfContentRepository.findById(hash).orElse(null);
+            Path file = Paths.get(storagePath).resolve(hash + ".pdf");
+            if (content == null) {
+                return unlink(hash, file);
+            }
+            Instant referenced = content.getLastReferencedAt() != null
+                    ? content.getLastReferencedAt() : content.getCreatedAt();
+            if (referenced != null && referenced.isAfter(cutoff)) {
+                return false;
+            }
+            // Unless an upload took a reference since it was read
+            PdfContent removed = mongoTemplate.findAndRemove(Query.query(Criteria.where("_id").is(hash)
+                    .and("lastReferencedAt").is(content.getLastReferencedAt())), PdfContent.class);
+            if (removed == null) {
+                return false;
+            }
+            unlink(hash, Paths.get(removed.getFilePath()));
+            return true;
+        }
+    }
+
+    /**
+     * Cached analysis for a hash, or null if none is usable.
+     * Exact mode only accepts results that carry full CMYK coverage.
+     */
+    public PdfContent findAnalysis(String hash, boolean exact) {
+        if (hash == null) {
+            return null;
+        }
+        PdfContent content = pdfContentRepository.findById(hash).orElse(null);
+        if (content == null || content.getAnalyzedAt() == null) {
+            return null;
+        }
+        if (exact && content.getInkCoverage() == null) {
+            return null;
+        }
+        return content;
+    }
+
+    /**
+     * Cache a session's analysis against its content
+     */
+    public void saveAnalysis(String hash, PdfSession session) {
+        if (hash == null) {
+            return;
+        }
+        Update update = new Update()
+                .set("pagesBefore", session.getPagesBefore())
+                .set("inkBefore", session.getInkBefore())
+                .set("inkCoverage", session.getInkCoverage())
+                .set("optimizingScore", session.getOptimizingScore())
+                .set("suggestions", session.getSuggestions())
+                .set("analyzedAt", Instant.now());
+        mongoTemplate.updateFirst(byHash(hash), update, PdfContent.class);
+    }
+
+    /**
+     * SHA-256 of a file, streamed from disk
+     */
+    static String hash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Delete a content file whose record is gone, unless a store has recorded
+     * the hash again meanwhile. The file is moved aside first and put back if a
+     * record exists by then; a store that saw the file before it moved has its
+     * record in place by then. Returns true if the file was deleted.
+     */
+    private boolean unlink(String hash, Path file) throws IOException {
+        Path aside = file.resolveSibling("release-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.move(file, aside, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (mongoTemplate.exists(byHash(hash), PdfContent.class)) {
+            // Same bytes as any copy a store has put there since
+            Files.move(aside, file, StandardCopyOption.ATOMIC_MOVE);
+            return false;
+        }
+        return Files.deleteIfExists(aside);
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static Query byHash(String hash) {
+        return Query.query(Criteria.where("_id").is(hash));
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
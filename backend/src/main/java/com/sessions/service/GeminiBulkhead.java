@@ -0,0 +1,170 @@
+package com.sessions.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulkhead around Gemini calls.
+ * At most gemini.bulkhead.max-concurrent calls run at once; up to
+ * gemini.bulkhead.max-queue more wait, each for at most max-wait-ms. A token
+ * bucket keeps the call rate within quota. Anything that cannot be admitted
+ * fails fast with GeminiBusyException instead of parking another thread.
+ */
+@Service
+public class GeminiBulkhead {
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Value("${gemini.bulkhead.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${gemini.bulkhead.max-queue:32}")
+    private int maxQueue;
+
+    @Value("${gemini.bulkhead.max-wait-ms:10000}")
+    private long maxWaitMs;
+
+    @Value("${gemini.rate-limit.per-minute:60}")
+    private int ratePerMinute;
+
+    @Value("${gemini.rate-limit.burst:10}")
+    private int burst;
+
+    private Semaphore slots;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // Token bucket, guarded by this
+    private double tokens;
+    private long refilledAt;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong rejectedTimeout = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        slots = new Semaphore(maxConcurrent, true);
+        tokens = burst;
+        refilledAt = System.nanoTime();
+    }
+
+    /**
+     * A running call's slot; close it when the call, including any streamed response, is done
+     */
+    public final class Permit implements AutoCloseable {
+        private boolean released = false;
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                slots.release();
+            }
+        }
+    }
+
+    /**
+     * Wait for a slot and a rate token, or fail with GeminiBusyException
+     */
+    public Permit acquire() {
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            rejectedQueueFull.incrementAndGet();
+            throw new GeminiBusyException("Gemini queue is full", retryAfterSeconds());
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        boolean slot = false;
+        try {
+            slot = slots.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            if (!slot) {
+                rejectedTimeout.incrementAndGet();
+                throw new GeminiBusyException("Timed out waiting for a Gemini slot", retryAfterSeconds());
+            }
+
+            long wait = reserveToken(deadline - System.nanoTime());
+            if (wait < 0) {
+                rejectedTimeout.incrementAndGet();
+                throw new GeminiBusyException("Gemini rate limit reached", retryAfterSeconds());
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            admitted.incrementAndGet();
+            Permit permit = new Permit();
+            slot = false;  // now owned by the permit
+            return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeminiBusyException("Interrupted waiting for Gemini", retryAfterSeconds());
+        } finally {
+            if (slot) {
+                slots.release();
+            }
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * True when new calls would be turned away straight away
+     */
+    public boolean isSaturated() {
+        return waiting.get() >= maxQueue;
+    }
+
+    /**
+     * Seconds a rejected client should wait before retrying
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWaitMs) / 2);
+    }
+
+    /**
+     * Pool saturation, queue depth and rejection counters
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("inFlight", maxConcurrent - slots.availablePermits());
+        stats.put("maxQueue", maxQueue);
+        stats.put("queued", waiting.get());
+        stats.put("admitted", admitted.get());
+        stats.put("rejectedQueueFull", rejectedQueueFull.get());
+        stats.put("rejectedTimeout", rejectedTimeout.get());
+        stats.put("ratePerMinute", ratePerMinute);
+        return stats;
+    }
+
+    /**
+     * Take a token, returning how long to wait before using it;
+     * -1 (and nothing taken) if that would be longer than maxWaitNanos
+     */
+    private synchronized long reserveToken(long maxWaitNanos) {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * (double) ratePerMinute / NANOS_PER_MINUTE);
+        refilledAt = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long wait = (long) Math.ceil((1 - tokens) * NANOS_PER_MINUTE / ratePerMinute);
+        if (wait > maxWaitNanos) {
+            return -1;
+        }
+        tokens -= 1;
+        return wait;
+    }
+}
@@ -0,0 +1,21 @@
+package com.sessions.service;
+
+/**
+ * Thrown when the Gemini bulkhead cannot admit a call in time.
+ * Controllers answer it with 429 and a Retry-After header.
+ */
+public class GeminiBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public GeminiBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
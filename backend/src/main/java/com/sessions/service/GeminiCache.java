@@ -0,0 +1,162 @@
+package com.sessions.service;
+
+import com.sessions.model.GeminiResponse;
+import com.sessions.repository.GeminiResponseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache for Gemini text responses.
+ * A size-bounded in-memory LRU sits in front of a Mongo collection that
+ * survives restarts and is shared between nodes. Entries are keyed by
+ * (content hash, model, prompt version) and expire after a fixed TTL.
+ */
+@Service
+public class GeminiCache {
+
+    @Autowired
+    private GeminiResponseRepository geminiResponseRepository;
+
+    @Value("${gemini.cache.max-chars:8000000}")
+    private long maxChars;
+
+    @Value("${gemini.cache.ttl-hours:168}")
+    private long ttlHours;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, GeminiResponse> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryChars = 0;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Cache key for a prompt; the prompt version is a digest of its text,
+     * so editing a prompt invalidates its old responses
+     */
+    public static String key(String contentHash, String model, String prompt) {
+        String promptVersion = sha256(prompt).substring(0, 12);
+        return contentHash + ":" + model + ":" + promptVersion;
+    }
+
+    /**
+     * Cached response text, or null on a miss
+     */
+    public String get(String key) {
+        Instant now = Instant.now();
+        synchronized (memory) {
+            GeminiResponse cached = memory.get(key);
+            if (cached != null) {
+                if (cached.getExpiresAt().isAfter(now)) {
+                    memoryHits.incrementAndGet();
+                    return cached.getText();
+                }
+                evict(key);
+            }
+        }
+
+        // The TTL index sweeps lazily, so check expiry here too
+        GeminiResponse stored = geminiResponseRepository.findById(key)
+                .filter(r -> r.getExpiresAt() != null && r.getExpiresAt().isAfter(now))
+                .orElse(null);
+        if (stored == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        storeHits.incrementAndGet();
+        remember(stored);
+        return stored.getText();
+    }
+
+    /**
+     * True if get would hit; leaves the hit/miss counters alone
+     */
+    public boolean contains(String key) {
+        Instant now = Instant.now();
+        synchronized (memory) {
+            GeminiResponse cached = memory.get(key);
+            if (cached != null && cached.getExpiresAt().isAfter(now)) {
+                return true;
+            }
+        }
+        return geminiResponseRepository.findById(key)
+                .filter(r -> r.getExpiresAt() != null && r.getExpiresAt().isAfter(now))
+                .isPresent();
+    }
+
+    /**
+     * Cache a response in both tiers
+     */
+    public void put(String key, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        GeminiResponse response = new GeminiResponse(key, text, now, now.plus(Duration.ofHours(ttlHours)));
+        geminiResponseRepository.save(response);
+        remember(response);
+    }
+
+    /**
+     * Hit/miss counters and current memory tier size
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("storeHits", storeHits.get());
+        stats.put("misses", misses.get());
+        synchronized (memory) {
+            stats.put("memoryEntries", memory.size());
+            stats.put("memoryChars", memoryChars);
+        }
+        return stats;
+    }
+
+    private void remember(GeminiResponse response) {
+        // Larger than the whole tier: serve it from Mongo only
+        if (response.getText().length() > maxChars) {
+            return;
+        }
+        synchronized (memory) {
+            evict(response.getId());
+            memory.put(response.getId(), response);
+            memoryChars += response.getText().length();
+
+            Iterator<GeminiResponse> lru = memory.values().iterator();
+            while (memoryChars > maxChars && lru.hasNext()) {
+                memoryChars -= lru.next().getText().length();
+                lru.remove();
+            }
+        }
+    }
+
+    // Caller holds the memory lock
+    private void evict(String key) {
+        GeminiResponse removed = memory.remove(key);
+        if (removed != null) {
+            memoryChars -= removed.getText().length();
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sessions.service;
+
+/**
+ * Incremental version of PdfService.sanitizeHtmlResponse for streamed responses.
+ * Drops everything before the doctype/html tag and after the last closing html
+ * tag, and strips markdown code fences, holding back just enough text to catch
+ * markers split across chunks. Like the batch version, the document ends at the
+ * last </html>: text after one is held until another arrives or the stream
+ * ends, when it is dropped.
+ */
+class HtmlStreamSanitizer {
+
+    // Longest marker that may straddle a chunk boundary ("```html" / "</html>")
+    private static final int HOLD_BACK = 7;
+
+    private final StringBuilder pending = new StringBuilder();
+    private boolean started = false;
+    private boolean closed = false;  // a </html> has been emitted
+    private boolean finished = false;
+
+    /**
+     * Feed the next chunk; returns the part that is safe to emit now
+     */
+    String feed(String chunk) {
+        if (finished || chunk == null || chunk.isEmpty()) {
+            return "";
+        }
+        pending.append(chunk);
+
+        if (!started) {
+            String lower = pending.toString().toLowerCase();
+            int start = lower.indexOf("<!doctype");
+            if (start < 0) {
+                start = lower.indexOf("<html");
+            }
+            if (start < 0) {
+                return "";
+            }
+            pending.delete(0, start);
+            started = true;
+        }
+
+        String text = stripFences(pending.toString());
+        int end = text.toLowerCase().lastIndexOf("</html>");
+        pending.setLength(0);
+        if (end >= 0) {
+            closed = true;
+            int emitted = end + "</html>".length();
+            pending.append(text, emitted, text.length());
+            return text.substring(0, emitted);
+        }
+        if (closed) {
+            pending.append(text);
+            return "";
+        }
+
+        int emit = Math.max(0, text.length() - HOLD_BACK);
+        pending.append(text, emit, text.length());
+        return text.substring(0, emit);
+    }
+
+    /**
+     * End of stream; returns whatever is still held back.
+     * A response without any html tag is passed through minus its fences.
+     */
+    String finish() {
+        if (finished) {
+            return "";
+        }
+        finished = true;
+        String rest = stripFences(pending.toString());
+        pending.setLength(0);
+        if (closed) {
+            return "";  // after the last </html>
+        }
+        return started ? rest : rest.trim();
+    }
+
+    private static String stripFences(String text) {
+        return text.replace("```html", "").replace("```HTML", "").replace("```", "");
+    }
+}
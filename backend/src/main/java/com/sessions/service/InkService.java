@@ -0,0 +1,408 @@
+package com.sessions.service;
+
+import com.sessions.model.InkCoverage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Page-parallel ink estimation.
+ * PDFBox is not thread-safe, so every worker opens its own PDDocument and
+ * PDFRenderer and renders a contiguous range of pages; the memory budget for
+ * all of a request's copies is taken at once.
+ */
+@Service
+public class InkService {
+
+    // Sample first 10 pages max for performance
+    private static final int MAX_SAMPLED_PAGES = 10;
+
+    // Render at 72 DPI for speed
+    private static final float RENDER_DPI = 72f;
+
+    @Autowired
+    private PdfMemoryBudget memoryBudget;
+
+    @Value("${pdf.ink.threads:0}")
+    private int configuredThreads;
+
+    @Value("${pdf.ink.vector-fast-path:true}")
+    private boolean vectorFastPath;
+
+    @Value("${pdf.ink.exact-dpi:72}")
+    private float exactDpi;
+
+    @Value("${pdf.ink.pooled-rasters:32}")
+    private int pooledRasters;
+
+    // Render ranges waiting for a worker; past this the submitting thread renders its own range
+    @Value("${pdf.ink.queue-capacity:64}")
+    private int queueCapacity;
+
+    private ExecutorService renderPool;
+    private RasterPool rasterPool;
+    private int poolSize;
+
+    @PostConstruct
+    void init() {
+        poolSize = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+        renderPool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("ink-render"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        rasterPool = new RasterPool(Math.max(pooledRasters, poolSize));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderPool.shutdownNow();
+    }
+
+    /**
+     * Calculate ink usage by measuring page darkness.
+     * Simple vector/text pages are estimated from their content stream;
+     * pages with images, shadings or soft masks are rendered. Failures are
+     * thrown rather than replaced with a made-up figure.
+     */
+    public double calculateInkUsage(File file, int pageCount) throws IOException {
+        if (pageCount <= 0) {
+            return 0.0;
+        }
+        int samplesToTake = Math.min(pageCount, MAX_SAMPLED_PAGES);
+        PageShortcut<Double> shortcut = vectorFastPath ? InkService::estimateVectorInk : null;
+        List<Double> pageInk;
+        try {
+            pageInk = renderPages(file, samplesToTake, BufferedImage.TYPE_BYTE_GRAY, RENDER_DPI,
+                    shortcut, (image, pageIndex) -> calculateImageDarkness(image));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while measuring ink usage", e);
+        }
+
+        // Merge in page order so the result does not depend on scheduling
+        double totalInk = 0.0;
+        for (double ink : pageInk) {
+            totalInk += ink;
+        }
+
+        // Extrapolate for remaining pages
+        if (pageCount > samplesToTake) {
+            double avgInkPerPage = totalInk / samplesToTake;
+            totalInk = avgInkPerPage * pageCount;
+        }
+
+        // Normalize to 0-1 range
+        return Math.min(1.0, totalInk / pageCount);
+    }
+
+    /**
+     * Exact mode: measure CMYK coverage on every page.
+     * Each worker holds one pooled raster and streams through its pages, so
+     * memory stays flat regardless of document length. Failures are not masked.
+     */
+    public InkCoverage calculateInkCoverage(File file, int pageCount) throws IOException {
+        List<InkCoverage.Page> pages = new ArrayList<>();
+        if (pageCount > 0) {
+            try {
+                pages = renderPages(file, pageCount, BufferedImage.TYPE_INT_RGB, exactDpi,
+                        null, InkService::calculatePageCoverage);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while measuring ink coverage", e);
+            }
+        }
+
+        double cyan = 0, magenta = 0, yellow = 0, black = 0, maxTac = 0;
+        for (InkCoverage.Page page : pages) {
+            cyan += page.getCyan();
+            magenta += page.getMagenta();
+            yellow += page.getYellow();
+            black += page.getBlack();
+            maxTac = Math.max(maxTac, page.getTotalAreaCoverage());
+        }
+        int count = Math.max(pages.size(), 1);
+
+        InkCoverage coverage = new InkCoverage();
+        coverage.setDpi(Math.round(exactDpi));
+        coverage.setCyan(cyan / count);
+        coverage.setMagenta(magenta / count);
+        coverage.setYellow(yellow / count);
+        coverage.setBlack(black / count);
+        coverage.setTotalAreaCoverage((cyan + magenta + yellow + black) / count);
+        coverage.setMaxTotalAreaCoverage(maxTac);
+        coverage.setPages(pages);
+        return coverage;
+    }
+
+    /**
+     * Average darkness over all pages of an exact coverage result
+     */
+    public static double averageDarkness(InkCoverage coverage) {
+        if (coverage.getPages() == null || coverage.getPages().isEmpty()) {
+            return 0.0;
+        }
+        double total = 0.0;
+        for (InkCoverage.Page page : coverage.getPages()) {
+            total += page.getDarkness();
+        }
+        return total / coverage.getPages().size();
+    }
+
+    /**
+     * Measures one rendered page
+     */
+    @FunctionalInterface
+    private interface PageKernel<T> {
+        T measure(BufferedImage image, int pageIndex);
+    }
+
+    /**
+     * Measures a page without rendering it; returns null when the page needs a render
+     */
+    @FunctionalInterface
+    private interface PageShortcut<T> {
+        T tryMeasure(PDPage page) throws IOException;
+    }
+
+    private static Double estimateVectorInk(PDPage page) {
+        try {
+            return VectorInkEstimator.estimate(page);
+        } catch (IOException | RuntimeException e) {
+            // Let the renderer have a go at pages the estimator cannot parse
+            return null;
+        }
+    }
+
+    /**
+     * Render pages [0, pages) across the pool and return per-page measurements in page order.
+     * When a shortcut is given, pages it can measure are not rendered at all. The memory
+     * budget is reserved up front: one full document plus as many worker copies as the
+     * node has room for now, and the pages are split across that many workers.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> renderPages(File file, int pages, int imageType, float dpi,
+                                    PageShortcut<T> shortcut, PageKernel<T> kernel)
+            throws IOException, InterruptedException {
+        Object[] result = new Object[pages];
+        int workers = Math.min(poolSize, pages);
+
+        try (PdfMemoryBudget.Reservation reservation =
+                     memoryBudget.reserveWorkers(file, workers, rasterMb(imageType, dpi))) {
+            int chunk = (pages + reservation.documents() - 1) / reservation.documents();
+            AtomicBoolean abort = new AtomicBoolean();
+            List<Future<?>> futures = new ArrayList<>();
+            try {
+                for (int start = 0; start < pages; start += chunk) {
+                    int from = start;
+                    int to = Math.min(pages, start + chunk);
+                    futures.add(renderPool.submit(() -> {
+                        renderRange(reservation, abort, file, from, to, imageType, dpi, shortcut, kernel, result);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                abort.set(true);
+                awaitAll(futures);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw io;
+                }
+                throw new IOException("Failed to render pages: " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                abort.set(true);
+                awaitAll(futures);
+                throw e;
+            }
+        }
+
+        List<T> measurements = new ArrayList<>(pages);
+        for (Object measurement : result) {
+            measurements.add((T) measurement);
+        }
+        return measurements;
+    }
+
+    /**
+     * Size of one pooled raster for an A4 page, the budget charged per worker
+     */
+    private static int rasterMb(int imageType, float dpi) {
+        long pixels = (long) Math.ceil(8.27 * dpi) * (long) Math.ceil(11.69 * dpi);
+        int bytesPerPixel = imageType == BufferedImage.TYPE_BYTE_GRAY ? 1 : 4;
+        return (int) Math.max(1, (pixels * bytesPerPixel + (1 << 20) - 1) >> 20);
+    }
+
+    /**
+     * Wait for every range to stop, so none still has a document open once the
+     * reservation is released; aborted ranges stop at their next page
+     */
+    private static void awaitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException e) {
+                    break;  // the first failure is already being reported
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> void renderRange(PdfMemoryBudget.Reservation reservation, AtomicBoolean abort, File file,
+                                 int from, int to, int imageType, float dpi, PageShortcut<T> shortcut,
+                                 PageKernel<T> kernel, Object[] result) throws IOException {
+        if (abort.get()) {
+            throw new InterruptedIOException("Rendering cancelled");
+        }
+        try (PDDocument document = reservation.open(file)) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            BufferedImage image = null;
+            try {
+                for (int i = from; i < to; i++) {
+                    if (abort.get() || Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Rendering cancelled");
+                    }
+                    PDPage page = document.getPage(i);
+                    if (shortcut != null) {
+                        T measured = shortcut.tryMeasure(page);
+                        if (measured != null) {
+                            result[i] = measured;
+                            continue;
+                        }
+                    }
+                    image = pooledRaster(page, image, imageType, dpi);
+                    renderInto(renderer, i, image, dpi);
+                    result[i] = kernel.measure(image, i);
+                }
+            } finally {
+                rasterPool.release(image);
+            }
+        }
+    }
+
+    /**
+     * Get a raster sized for the page, reusing the current one when the page size has not changed
+     */
+    private BufferedImage pooledRaster(PDPage page, BufferedImage current, int imageType, float dpi) {
+        PDRectangle cropBox = page.getCropBox();
+        float scale = dpi / 72f;
+        int width = Math.max((int) Math.floor(cropBox.getWidth() * scale), 1);
+        int height = Math.max((int) Math.floor(cropBox.getHeight() * scale), 1);
+        if (page.getRotation() % 180 != 0) {
+            int swap = width;
+            width = height;
+            height = swap;
+        }
+
+        if (current != null && current.getWidth() == width && current.getHeight() == height
+                && current.getType() == imageType) {
+            return current;
+        }
+        rasterPool.release(current);
+        return rasterPool.acquire(width, height, imageType);
+    }
+
+    /**
+     * Render a page straight into a (possibly dirty) pooled raster
+     */
+    private void renderInto(PDFRenderer renderer, int pageIndex, BufferedImage image, float dpi) throws IOException {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+            renderer.renderPageToGraphics(pageIndex, graphics, dpi / 72f);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Calculate darkness/ink coverage of a gray raster.
+     * Reads the backing byte[] directly; every pixel is counted since the
+     * loop is cheaper than the old every-4th-pixel getRGB sampling.
+     */
+    static double calculateImageDarkness(BufferedImage image) {
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        long totalBrightness = 0;
+        for (byte pixel : pixels) {
+            totalBrightness += pixel & 0xFF;
+        }
+        // Ink = 1 - brightness (darker = more ink)
+        return 1.0 - totalBrightness / (255.0 * pixels.length);
+    }
+
+    /**
+     * Naive RGB to CMYK separation (K = 1 - max(R, G, B), no undercolor removal)
+     * summed over every pixel of an RGB raster
+     */
+    static InkCoverage.Page calculatePageCoverage(BufferedImage image, int pageIndex) {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        long cyan = 0, magenta = 0, yellow = 0, black = 0, luma = 0;
+        for (int rgb : pixels) {
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int max = Math.max(r, Math.max(g, b));
+            black += 255 - max;
+            if (max > 0) {
+                cyan += (max - r) * 255 / max;
+                magenta += (max - g) * 255 / max;
+                yellow += (max - b) * 255 / max;
+            }
+            luma += (77 * r + 150 * g + 29 * b) >> 8;
+        }
+
+        double scale = 255.0 * pixels.length;
+        InkCoverage.Page page = new InkCoverage.Page();
+        page.setPageNumber(pageIndex + 1);
+        page.setCyan(cyan / scale);
+        page.setMagenta(magenta / scale);
+        page.setYellow(yellow / scale);
+        page.setBlack(black / scale);
+        page.setTotalAreaCoverage((cyan + magenta + yellow + black) / scale);
+        page.setDarkness(1.0 - luma / scale);
+        return page;
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        ThreadFactory defaults = Executors.defaultThreadFactory();
+        return new ThreadFactory() {
+            private int counter = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = defaults.newThread(r);
+                thread.setName(prefix + "-" + (++counter));
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
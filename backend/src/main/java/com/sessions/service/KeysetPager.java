@@ -0,0 +1,107 @@
+package com.sessions.service;
+
+import com.sessions.dto.CursorPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination over (createdAt desc, _id desc).
+ * Each page continues strictly after the last row of the previous one, so it is
+ * an index range scan on the {createdAt: -1, _id: -1} index however deep the
+ * client pages, and only the requested fields are read.
+ */
+@Service
+public class KeysetPager {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Newest-first page of type after the cursor (null for the first page), reading only fields
+     */
+    public <T> CursorPage<T> page(Class<T> type, String cursor, int limit, Collection<String> fields,
+                                  Function<T, String> id, Function<T, Instant> createdAt) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        Query query = new Query();
+        if (cursor != null && !cursor.isEmpty()) {
+            Key after = decode(cursor);
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("createdAt").lt(after.createdAt()),
+                    Criteria.where("createdAt").is(after.createdAt()).and("id").lt(after.id())));
+        }
+        query.with(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id")));
+        // One extra row tells us whether another page follows
+        query.limit(size + 1);
+        query.fields().include("createdAt");
+        fields.forEach(field -> query.fields().include(field));
+
+        List<T> rows = mongoTemplate.find(query, type);
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        T last = items.get(size - 1);
+        return new CursorPage<>(items, encode(createdAt.apply(last), id.apply(last)));
+    }
+
+    /**
+     * Fields named in a comma-separated request parameter, or the summary set when it is blank;
+     * anything outside allowed is rejected
+     */
+    public static List<String> selectFields(String requested, List<String> summary, Set<String> allowed) {
+        if (requested == null || requested.isBlank()) {
+            return summary;
+        }
+        List<String> fields = Arrays.stream(requested.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .toList();
+        for (String field : fields) {
+            if (!allowed.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Collection size from its metadata, without a scan
+     */
+    public long estimatedTotal(Class<?> type) {
+        return mongoTemplate.estimatedCount(type);
+    }
+
+    private record Key(Instant createdAt, String id) {}
+
+    private static String encode(Instant createdAt, String id) {
+        String raw = createdAt.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Key decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.indexOf(':');
+            return new Key(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, split))), raw.substring(split + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.sessions.service;
+
+import com.sessions.model.OrgMetricsBucket;
+import com.sessions.model.PdfSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Organization-wide metrics rolled up into hourly and daily buckets.
+ * Analyses and optimizations $inc the current hour and day as they finish, so
+ * a range query reads at most a few hundred small bucket documents rather than
+ * PdfSessions (whose rows expire after a day anyway). Closed buckets never
+ * change, so their sum for a range is cached until the next bucket opens; only
+ * the current bucket is re-read, and at most once per current-ttl-ms.
+ */
+@Service
+public class OrgMetricsService {
+
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+
+    private static final int MAX_CACHED_RANGES = 32;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${org.metrics.current-ttl-ms:5000}")
+    private long currentTtlMs;
+
+    @Value("${org.metrics.hourly-retention-days:35}")
+    private int hourlyRetentionDays;
+
+    // Sums of closed buckets per (granularity, range, current bucket); access-ordered LRU
+    private final LinkedHashMap<String, Totals> closedRanges = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Totals> eldest) {
+            return size() > MAX_CACHED_RANGES;
+        }
+    };
+
+    // Last read of the open bucket per granularity
+    private final Map<String, CurrentBucket> current = new ConcurrentHashMap<>();
+
+    private record CurrentBucket(String id, Totals totals, long readAt) {}
+
+    /**
+     * Summed bucket counters
+     */
+    public record Totals(long pagesSaved, double inkSaved, long scoreSum,
+                         long sessionsAnalyzed, long sessionsOptimized) {
+        static final Totals ZERO = new Totals(0, 0.0, 0, 0, 0);
+
+        static Totals of(OrgMetricsBucket bucket) {
+            if (bucket == null) {
+                return ZERO;
+            }
+            return new Totals(bucket.getPagesSaved(), bucket.getInkSaved(), bucket.getScoreSum(),
+                    bucket.getSessionsAnalyzed(), bucket.getSessionsOptimized());
+        }
+
+        Totals plus(Totals other) {
+            return new Totals(pagesSaved + other.pagesSaved, inkSaved + other.inkSaved,
+                    scoreSum + other.scoreSum, sessionsAnalyzed + other.sessionsAnalyzed,
+                    sessionsOptimized + other.sessionsOptimized);
+        }
+
+        public double avgScore() {
+            return sessionsAnalyzed > 0 ? (double) scoreSum / sessionsAnalyzed : 0.0;
+        }
+    }
+
+    /**
+     * What one optimization saved; null when the session has not been optimized
+     */
+    public record Savings(long pages, double ink) {
+        public static Savings of(PdfSession session) {
+            if (session.getPagesAfter() == null || session.getPagesBefore() == null) {
+                return null;
+            }
+            double ink = session.getInkBefore() != null && session.getInkAfter() != null
+                    ? session.getInkBefore() - session.getInkAfter() : 0.0;
+            return new Savings(session.getPagesBefore() - session.getPagesAfter(), ink);
+        }
+    }
+
+    /**
+     * A session's analysis went from before to after; count the difference now
+     */
+    public void analysisChanged(UserStatsService.Contribution before, UserStatsService.Contribution after) {
+        long score = (after != null ? after.score() : 0) - (before != null ? before.score() : 0);
+        long analyzed = (after != null ? 1 : 0) - (before != null ? 1 : 0);
+        record(new Totals(0, 0.0, score, analyzed, 0));
+    }
+
+    /**
+     * A session's optimization went from before to after; count the difference now
+     */
+    public void optimizationChanged(Savings before, Savings after) {
+        long pages = (after != null ? after.pages() : 0) - (before != null ? before.pages() : 0);
+        double ink = (after != null ? after.ink() : 0.0) - (before != null ? before.ink() : 0.0);
+        long optimized = (after != null ? 1 : 0) - (before != null ? 1 : 0);
+        record(new Totals(pages, ink, 0, 0, optimized));
+    }
+
+    /**
+     * Totals over the last `count` hours or days, the current one included;
+     * count <= 0 with DAY means all time
+     */
+    public Totals totals(String granularity, int count) {
+        ChronoUnit unit = HOUR.equals(granularity) ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        Instant currentStart = Instant.now().truncatedTo(unit);
+        Instant from = count > 0 ? currentStart.minus(count - 1, unit) : Instant.EPOCH;
+
+        String rangeKey = granularity + ":" + count + ":" + currentStart;
+        Totals closed;
+        synchronized (closedRanges) {
+            closed = closedRanges.get(rangeKey);
+        }
+        if (closed == null) {
+            closed = sumBuckets(granularity, from, currentStart);
+            synchronized (closedRanges) {
+                closedRanges.put(rangeKey, closed);
+            }
+        }
+        return closed.plus(currentBucket(granularity, currentStart));
+    }
+
+    // ========== Private Helper Methods ==========
+
+    private void record(Totals delta) {
+        if (delta.equals(Totals.ZERO)) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant hour = now.truncatedTo(ChronoUnit.HOURS);
+        increment(HOUR, hour, delta, hour.plus(Duration.ofDays(hourlyRetentionDays)));
+        increment(DAY, now.truncatedTo(ChronoUnit.DAYS), delta, null);
+        // Let this node see its own writes straight away
+        current.clear();
+    }
+
+    private void increment(String granularity, Instant start, Totals delta, Instant expiresAt) {
+        Update update = new Update()
+                .inc("pagesSaved", delta.pagesSaved())
+                .inc("inkSaved", delta.inkSaved())
+                .inc("scoreSum", delta.scoreSum())
+                .inc("sessionsAnalyzed", delta.sessionsAnalyzed())
+                .inc("sessionsOptimized", delta.sessionsOptimized())
+                .setOnInsert("granularity", granularity)
+                .setOnInsert("start", start);
+        if (expiresAt != null) {
+            update.setOnInsert("expiresAt", expiresAt);
+        }
+        mongoTemplate.upsert(Query.query(Criteria.where("id").is(bucketId(granularity, start))),
+                update, OrgMetricsBucket.class);
+    }
+
+    private Totals currentBucket(String granularity, Instant start) {
+        String id = bucketId(granularity, start);
+        long now = System.currentTimeMillis();
+        CurrentBucket cached = current.get(granularity);
+        if (cached != null && cached.id().equals(id) && now - cached.readAt() < currentTtlMs) {
+            return cached.totals();
+        }
+        Totals totals = Totals.of(mongoTemplate.findById(id, OrgMetricsBucket.class));
+        current.put(granularity, new CurrentBucket(id, totals, now));
+        return totals;
+    }
+
+    private Totals sumBuckets(String granularity, Instant from, Instant to) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("granularity").is(granularity)
+                        .and("start").gte(from).lt(to)),
+                Aggregation.group()
+                        .sum("pagesSaved").as("pagesSaved")
+                        .sum("inkSaved").as("inkSaved")
+                        .sum("scoreSum").as("scoreSum")
+                        .sum("sessionsAnalyzed").as("sessionsAnalyzed")
+                        .sum("sessionsOptimized").as("sessionsOptimized"));
+        OrgMetricsBucket sum = mongoTemplate.aggregate(aggregation, OrgMetricsBucket.class, OrgMetricsBucket.class)
+                .getUniqueMappedResult();
+        return Totals.of(sum);
+    }
+
+    private static String bucketId(String granularity, Instant start) {
+        return granularity + ":" + start;
+    }
+}
@@ -0,0 +1,133 @@
+package com.sessions.service;
+
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * N-up imposition: places 2, 4, 6 or 9 source pages on each sheet.
+ * Every source page is imported as a form XObject with LayerUtility and drawn
+ * scaled into its grid cell. Stream data in both documents spills to scratch
+ * files past the per-document budget, but the object graph does not: every
+ * imported form stays referenced by the output document until it is saved, so
+ * heap use still grows with page count. Source and output are admitted to the
+ * memory budget together, by file size.
+ */
+@Service
+public class PageImposer {
+
+    @Autowired
+    private PdfMemoryBudget memoryBudget;
+
+    // Fraction of each side cut away before a page is scaled into its cell
+    @Value("${pdf.impose.trim-margin:0.0}")
+    private float trimMargin;
+
+    /**
+     * Pages per sheet for a pageSaverLevel (0-100)
+     */
+    public static int pagesPerSheet(Integer pageSaverLevel) {
+        int level = pageSaverLevel != null ? pageSaverLevel : 0;
+        if (level < 20) return 1;
+        if (level < 45) return 2;
+        if (level < 70) return 4;
+        if (level < 90) return 6;
+        return 9;
+    }
+
+    /**
+     * Impose input onto sheets of the first page's size; returns the number of sheets written
+     */
+    public int impose(File input, Path output, int pagesPerSheet) throws IOException {
+        int columns = switch (pagesPerSheet) {
+            case 2 -> 2;
+            case 4 -> 2;
+            case 6, 9 -> 3;
+            default -> throw new IllegalArgumentException("Unsupported pages per sheet: " + pagesPerSheet);
+        };
+        int rows = pagesPerSheet / columns;
+
+        // The target holds cloned resources of every imported page until it is saved,
+        // so it is charged like a second copy of the source
+        try (PdfMemoryBudget.Reservation reservation = memoryBudget.reserve(input, 2);
+             PDDocument source = reservation.open(input);
+             PDDocument target = new PDDocument(memoryBudget.streamCache())) {
+            int pages = source.getNumberOfPages();
+            if (pages == 0) {
+                target.save(output.toFile());
+                return 0;
+            }
+
+            // 2-up and 6-up grids sit better on a landscape sheet
+            PDRectangle first = source.getPage(0).getCropBox();
+            float shortSide = Math.min(first.getWidth(), first.getHeight());
+            float longSide = Math.max(first.getWidth(), first.getHeight());
+            boolean landscape = columns > rows;
+            PDRectangle sheetBox = landscape
+                    ? new PDRectangle(longSide, shortSide)
+                    : new PDRectangle(shortSide, longSide);
+            float cellWidth = sheetBox.getWidth() / columns;
+            float cellHeight = sheetBox.getHeight() / rows;
+
+            LayerUtility layers = new LayerUtility(target);
+            int sheets = 0;
+            for (int start = 0; start < pages; start += pagesPerSheet) {
+                PDPage sheet = new PDPage(sheetBox);
+                target.addPage(sheet);
+                sheets++;
+
+                try (PDPageContentStream content = new PDPageContentStream(target, sheet)) {
+                    for (int cell = 0; cell < pagesPerSheet && start + cell < pages; cell++) {
+                        PDFormXObject form = layers.importPageAsForm(source, start + cell);
+                        // Left to right, top to bottom
+                        float cellX = (cell % columns) * cellWidth;
+                        float cellY = sheetBox.getHeight() - (cell / columns + 1) * cellHeight;
+                        drawInCell(content, form, cellX, cellY, cellWidth, cellHeight);
+                    }
+                }
+            }
+
+            target.save(output.toFile());
+            return sheets;
+        }
+    }
+
+    private void drawInCell(PDPageContentStream content, PDFormXObject form,
+                            float cellX, float cellY, float cellWidth, float cellHeight) throws IOException {
+        // Visible area of the page after the form matrix (which carries /Rotate)
+        Rectangle2D bounds = form.getBBox().transform(form.getMatrix()).getBounds2D();
+        double trimX = bounds.getWidth() * trimMargin;
+        double trimY = bounds.getHeight() * trimMargin;
+        double x = bounds.getX() + trimX;
+        double y = bounds.getY() + trimY;
+        double width = bounds.getWidth() - 2 * trimX;
+        double height = bounds.getHeight() - 2 * trimY;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        float scale = (float) Math.min(cellWidth / width, cellHeight / height);
+        float offsetX = cellX + (float) (cellWidth - width * scale) / 2;
+        float offsetY = cellY + (float) (cellHeight - height * scale) / 2;
+
+        content.saveGraphicsState();
+        content.addRect(offsetX, offsetY, (float) (width * scale), (float) (height * scale));
+        content.clip();
+        content.transform(new Matrix(scale, 0, 0, scale,
+                offsetX - (float) (x * scale), offsetY - (float) (y * scale)));
+        content.drawForm(form);
+        content.restoreGraphicsState();
+    }
+}
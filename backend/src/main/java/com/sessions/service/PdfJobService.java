@@ -0,0 +1,145 @@
+package com.sessions.service;
+
+import com.sessions.model.PdfSession;
+import com.sessions.repository.PdfSessionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs analyze and optimize off the request thread.
+ * Jobs go onto a bounded pool with a bounded queue; when both are full,
+ * submission fails with RejectedExecutionException so callers can shed load.
+ * Progress is reported through PdfSession.status.
+ */
+@Service
+public class PdfJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfJobService.class);
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private SessionTransitions sessionTransitions;
+
+    @Autowired
+    private PdfSessionRepository pdfSessionRepository;
+
+    @Value("${pdf.jobs.threads:4}")
+    private int threads;
+
+    @Value("${pdf.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ExecutorService jobPool;
+
+    // Analyze runs in flight on this node, by session id and mode
+    private final SingleFlight<PdfSession> analyzeFlights = new SingleFlight<>();
+
+    @PostConstruct
+    void init() {
+        jobPool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), InkService.namedThreads("pdf-job"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobPool.shutdownNow();
+    }
+
+    /**
+     * Queue an analysis; the session is marked ANALYZING straight away.
+     * A request for a session this node is already analyzing in the same mode
+     * joins that run; throws SessionConflictException if it is optimizing, or
+     * being analyzed elsewhere or in the other mode.
+     */
+    public PdfSession submitAnalyze(String sessionId, boolean exact) {
+        AtomicReference<PdfSession> begun = new AtomicReference<>();
+        analyzeFlights.share(analyzeKey(sessionId, exact), () -> {
+            Started started = start(sessionId, SessionTransitions.ANALYZING,
+                    () -> pdfService.analyzePdf(sessionId, exact));
+            begun.set(started.session());
+            return started.result();
+        });
+        if (begun.get() != null) {
+            return begun.get();
+        }
+        // Joined the run already in flight
+        return pdfSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+    }
+
+    /**
+     * Queue an optimization; the session is marked OPTIMIZING straight away.
+     * Throws SessionConflictException if it is already analyzing or optimizing.
+     */
+    public PdfSession submitOptimize(String sessionId, Integer inkSaverLevel, Integer pageSaverLevel,
+                                     Boolean preserveQuality, Boolean excludeImages) {
+        return start(sessionId, SessionTransitions.OPTIMIZING, () -> pdfService.optimizePdf(
+                sessionId, inkSaverLevel, pageSaverLevel, preserveQuality, excludeImages)).session();
+    }
+
+    /**
+     * True if an analyze request for the session would join a run already in flight here
+     */
+    public boolean isAnalyzing(String sessionId, boolean exact) {
+        return analyzeFlights.isInFlight(analyzeKey(sessionId, exact));
+    }
+
+    /**
+     * Coalescing counters for analyze requests
+     */
+    public Map<String, Object> analyzeFlightStats() {
+        return analyzeFlights.stats();
+    }
+
+    private static String analyzeKey(String sessionId, boolean exact) {
+        return sessionId + ":" + exact;
+    }
+
+    @FunctionalInterface
+    private interface Job {
+        PdfSession run() throws Exception;
+    }
+
+    // The session as submitted, and the job's outcome
+    private record Started(PdfSession session, CompletableFuture<PdfSession> result) {}
+
+    private Started start(String sessionId, String runningStatus, Job job) {
+        // Compare-and-set before submitting: a second request for a held session gets a conflict
+        PdfSession session = sessionTransitions.begin(sessionId, runningStatus);
+        String previousStatus = session.getStatus();
+        session.setStatus(runningStatus);
+
+        CompletableFuture<PdfSession> result = new CompletableFuture<>();
+        try {
+            jobPool.execute(() -> {
+                try {
+                    result.complete(job.run());
+                } catch (Exception e) {
+                    // The service has already marked the session as ERROR
+                    log.warn("PDF job failed for session {}", sessionId, e);
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sessionTransitions.revert(sessionId, runningStatus, previousStatus);
+            throw e;
+        }
+        return new Started(session, result);
+    }
+}
@@ -0,0 +1,219 @@
+package com.sessions.service;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory budget for open PDF documents.
+ * Each document keeps at most pdf.memory.per-document-mb of stream data in heap
+ * and spills the rest to the scratch directory. A node-wide semaphore, counted
+ * in megabytes, admits documents by estimated cost rather than by request count,
+ * so a burst of large uploads queues instead of exhausting the heap.
+ */
+@Service
+public class PdfMemoryBudget {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Value("${pdf.memory.per-document-mb:64}")
+    private int perDocumentMb;
+
+    @Value("${pdf.memory.per-worker-mb:16}")
+    private int perWorkerMb;
+
+    @Value("${pdf.memory.node-budget-mb:1024}")
+    private int nodeBudgetMb;
+
+    @Value("${pdf.memory.scratch-dir:}")
+    private String scratchDir;
+
+    @Value("${pdf.memory.admit-timeout-seconds:120}")
+    private long admitTimeoutSeconds;
+
+    private Semaphore budget;
+    private File scratch;
+
+    @PostConstruct
+    void init() throws IOException {
+        budget = new Semaphore(nodeBudgetMb, true);
+        if (scratchDir != null && !scratchDir.isEmpty()) {
+            scratch = new File(scratchDir);
+            Files.createDirectories(scratch.toPath());
+        }
+    }
+
+    /**
+     * An open document holding its share of the budget until closed
+     */
+    public static final class Lease implements AutoCloseable {
+        private final PDDocument document;
+        private final Semaphore budget;
+        private final int permits;
+
+        private Lease(PDDocument document, Semaphore budget, int permits) {
+            this.document = document;
+            this.budget = budget;
+            this.permits = permits;
+        }
+
+        public PDDocument document() {
+            return document;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                document.close();
+            } finally {
+                budget.release(permits);
+            }
+        }
+    }
+
+    /**
+     * Budget for several documents the size of one file.
+     * The first fullCopies copies opened get the per-document stream cache; any
+     * further copies are worker copies with the smaller per-worker cache.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final int documents;
+        private final int fullCopies;
+        private final int permits;
+        private int opened = 0;
+        private boolean released = false;
+
+        private Reservation(int documents, int fullCopies, int permits) {
+            this.documents = documents;
+            this.fullCopies = fullCopies;
+            this.permits = permits;
+        }
+
+        /**
+         * Number of copies this reservation has room for
+         */
+        public int documents() {
+            return documents;
+        }
+
+        /**
+         * Open a copy of the file under this reservation, without waiting again
+         */
+        public PDDocument open(File file) throws IOException {
+            boolean full;
+            synchronized (this) {
+                full = opened++ < fullCopies;
+            }
+            return Loader.loadPDF(file, full ? streamCache() : streamCache(perWorkerMb));
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                budget.release(permits);
+            }
+        }
+    }
+
+    /**
+     * Reserve room for documents copies of file (parsed copies, or outputs built
+     * from it) at once, so they cannot each hold part of the budget while waiting
+     * for the rest; blocks up to the admit timeout
+     */
+    public Reservation reserve(File file, int documents) throws IOException {
+        int copies = Math.max(1, documents);
+        int permits = (int) Math.min(nodeBudgetMb, (long) copies * estimateMb(file.length()));
+        acquire(permits);
+        return new Reservation(copies, copies, permits);
+    }
+
+    /**
+     * Reserve one full document, waiting up to the admit timeout, plus as many of
+     * workers - 1 worker copies as the budget admits right now, each charged its
+     * per-worker cache, the file and rasterMb of page raster. Check documents()
+     * for how many copies were granted: under load a job runs on fewer workers
+     * instead of waiting for room for all of them.
+     */
+    public Reservation reserveWorkers(File file, int workers, int rasterMb) throws IOException {
+        int first = estimateMb(file.length());
+        acquire(first);
+        int workerCost = (int) Math.min(nodeBudgetMb, perWorkerMb + fileMb(file.length()) + (long) rasterMb);
+        int granted = 1;
+        int permits = first;
+        try {
+            // Zero-timeout form, which unlike tryAcquire(int) does not jump ahead of waiting jobs
+            while (granted < workers && budget.tryAcquire(workerCost, 0, TimeUnit.SECONDS)) {
+                granted++;
+                permits += workerCost;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            budget.release(permits);
+            throw new InterruptedIOException("Interrupted waiting for PDF memory budget");
+        }
+        return new Reservation(granted, 1, permits);
+    }
+
+    /**
+     * Open a PDF once the node has room for it; blocks up to the admit timeout
+     */
+    public Lease open(File file) throws IOException {
+        int permits = estimateMb(file.length());
+        acquire(permits);
+        try {
+            return new Lease(Loader.loadPDF(file, streamCache()), budget, permits);
+        } catch (IOException | RuntimeException e) {
+            budget.release(permits);
+            throw e;
+        }
+    }
+
+    /**
+     * Stream cache for documents created from scratch: heap up to the per-document cap, then disk
+     */
+    public StreamCacheCreateFunction streamCache() {
+        return streamCache(perDocumentMb);
+    }
+
+    private StreamCacheCreateFunction streamCache(int heapMb) {
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(heapMb * MB);
+        if (scratch != null) {
+            setting.setTempDir(scratch);
+        }
+        return setting.streamCache;
+    }
+
+    /**
+     * Parsed object graph plus cached stream data, capped at the node budget
+     */
+    int estimateMb(long fileBytes) {
+        return (int) Math.max(1, Math.min(nodeBudgetMb, perDocumentMb + fileMb(fileBytes)));
+    }
+
+    private static long fileMb(long fileBytes) {
+        return (fileBytes + MB - 1) / MB;
+    }
+
+    private void acquire(int permits) throws IOException {
+        try {
+            if (!budget.tryAcquire(permits, admitTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out waiting for PDF memory budget (" + permits + " MB)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for PDF memory budget");
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.sessions.service;
+
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.*;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDCalRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.RescaleOp;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Local PDF optimization with PDFBox, no remote calls.
+ * Images are downsampled and recompressed (or replaced with a blank pixel when
+ * excluded), content stream colors are converted to gray and lightened for
+ * ink saving, and the result is written with object and xref streams.
+ */
+@Service
+public class PdfOptimizer {
+
+    @Autowired
+    private PdfMemoryBudget memoryBudget;
+
+    // Image resolution caps, relative to the page the image sits on
+    private static final float TARGET_DPI = 150f;
+    private static final float PRESERVE_QUALITY_DPI = 300f;
+
+    private static final float JPEG_QUALITY = 0.6f;
+    private static final float PRESERVE_QUALITY_JPEG = 0.85f;
+
+    // Draft mode lightens everything by up to this much at inkSaverLevel 100
+    private static final float MAX_LIGHTEN = 0.5f;
+
+    /**
+     * What the optimizer did to a document
+     */
+    public static class Result {
+        private final int pages;
+        private final List<String> changesApplied;
+
+        Result(int pages, List<String> changesApplied) {
+            this.pages = pages;
+            this.changesApplied = changesApplied;
+        }
+
+        public int getPages() { return pages; }
+        public List<String> getChangesApplied() { return changesApplied; }
+    }
+
+    /**
+     * Optimize a PDF into output.
+     * inkSaverLevel 0 keeps colors; anything above converts to gray and lightens
+     * proportionally (draft mode). preserveQuality raises the image resolution
+     * and JPEG quality caps.
+     */
+    public Result optimize(File input, Path output, Integer inkSaverLevel,
+                           Boolean preserveQuality, Boolean excludeImages) throws IOException {
+        Settings settings = new Settings(
+                inkSaverLevel != null ? Math.max(0, Math.min(100, inkSaverLevel)) : 0,
+                Boolean.TRUE.equals(preserveQuality),
+                Boolean.TRUE.equals(excludeImages));
+
+        try (PdfMemoryBudget.Lease lease = memoryBudget.open(input)) {
+            PDDocument document = lease.document();
+            Pass pass = new Pass(document, settings);
+            for (PDPage page : document.getPages()) {
+                pass.page(page);
+            }
+            document.save(output.toFile(), CompressParameters.DEFAULT_COMPRESSION);
+            return new Result(document.getNumberOfPages(), pass.changes());
+        }
+    }
+
+    /**
+     * Color spaces whose colors are converted to gray
+     */
+    private enum Space {
+        GRAY(1), RGB(3), CMYK(4);
+
+        final int components;
+
+        Space(int components) {
+            this.components = components;
+        }
+    }
+
+    /**
+     * Current non-stroking and stroking color spaces; null when not convertible or not known
+     */
+    private record ColorState(Space nonStroking, Space stroking) {
+        ColorState with(boolean strokingSide, Space space) {
+            return strokingSide ? new ColorState(nonStroking, space) : new ColorState(space, stroking);
+        }
+    }
+
+    private record Settings(int inkSaverLevel, boolean preserveQuality, boolean excludeImages) {
+        boolean grayscale() { return inkSaverLevel > 0; }
+        float lighten() { return MAX_LIGHTEN * inkSaverLevel / 100f; }
+        float dpi() { return preserveQuality ? PRESERVE_QUALITY_DPI : TARGET_DPI; }
+        float jpegQuality() { return preserveQuality ? PRESERVE_QUALITY_JPEG : JPEG_QUALITY; }
+    }
+
+    /**
+     * One optimization run over a document. Images and forms shared between
+     * pages are processed once, keyed by their underlying stream.
+     */
+    private static class Pass {
+        private final PDDocument document;
+        private final Settings settings;
+
+        private final Map<COSStream, PDImageXObject> replacedImages = new IdentityHashMap<>();
+        private final Set<COSStream> visitedForms = Collections.newSetFromMap(new IdentityHashMap<>());
+        private PDImageXObject blank;
+
+        private int imagesRecompressed = 0;
+        private int imagesRemoved = 0;
+        private int colorOperatorsConverted = 0;
+
+        Pass(PDDocument document, Settings settings) {
+            this.document = document;
+            this.settings = settings;
+        }
+
+        void page(PDPage page) throws IOException {
+            PDRectangle box = page.getCropBox();
+            float maxPixels = Math.max(box.getWidth(), box.getHeight()) / 72f * settings.dpi();
+
+            if (settings.grayscale()) {
+                PDStream contents = rewriteColors(page);
+                if (contents != null) {
+                    page.setContents(contents);
+                }
+            }
+            resources(page.getResources(), maxPixels);
+        }
+
+        List<String> changes() {
+            List<String> changes = new ArrayList<>();
+            if (imagesRemoved > 0) {
+                changes.add("Removed " + imagesRemoved + " images");
+            }
+            if (imagesRecompressed > 0) {
+                changes.add("Downsampled and recompressed " + imagesRecompressed + " images");
+            }
+            if (colorOperatorsConverted > 0) {
+                changes.add(settings.lighten() > 0
+                        ? "Converted to grayscale draft (" + Math.round(settings.lighten() * 100) + "% lighter)"
+                        : "Converted to grayscale");
+            }
+            changes.add("Rewrote with object and cross-reference streams");
+            return changes;
+        }
+
+        private void resources(PDResources resources, float maxPixels) throws IOException {
+            if (resources == null) {
+                return;
+            }
+            List<COSName> names = new ArrayList<>();
+            resources.getXObjectNames().forEach(names::add);
+            for (COSName name : names) {
+                PDXObject xobject = resources.getXObject(name);
+                if (xobject instanceof PDImageXObject image) {
+                    PDImageXObject replacement = image(image, maxPixels);
+                    if (replacement != image) {
+                        resources.put(name, replacement);
+                    }
+                } else if (xobject instanceof PDFormXObject form && visitedForms.add(form.getCOSObject())) {
+                    if (settings.grayscale()) {
+                        rewriteColors(form);
+                    }
+                    resources(form.getResources(), maxPixels);
+                }
+            }
+        }
+
+        /**
+         * The image to use in place of this one; the same object when it is left alone
+         */
+        private PDImageXObject image(PDImageXObject image, float maxPixels) throws IOException {
+            PDImageXObject done = replacedImages.get(image.getCOSObject());
+            if (done != null) {
+                return done;
+            }
+
+            PDImageXObject replacement = image;
+            if (settings.excludeImages()) {
+                replacement = blankImage();
+                imagesRemoved++;
+            } else if (canRecompress(image)) {
+                try {
+                    replacement = recompress(image, maxPixels);
+                } catch (IOException e) {
+                    // Undecodable image: keep the original bytes
+                }
+            }
+            replacedImages.put(image.getCOSObject(), replacement);
+            // Shared resource dictionaries hand the replacement back on later pages
+            replacedImages.put(replacement.getCOSObject(), replacement);
+            return replacement;
+        }
+
+        /**
+         * Stencil masks, color-key masked and 1-bit images would be damaged or grow as JPEG
+         */
+        private boolean canRecompress(PDImageXObject image) {
+            return !image.isStencil()
+                    && image.getBitsPerComponent() > 1
+                    && !(image.getCOSObject().getDictionaryObject(COSName.MASK) instanceof COSArray);
+        }
+
+        private PDImageXObject recompress(PDImageXObject image, float maxPixels) throws IOException {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            float scale = Math.min(1f, maxPixels / Math.max(width, height));
+            boolean downsample = scale < 0.9f;
+            if (!downsample && !settings.grayscale()) {
+                // Already small enough and colors are kept; only a smaller re-encode would help
+                if (!"DCTDecode".equals(filterOf(image)) || settings.preserveQuality()) {
+                    return image;
+                }
+            }
+
+            int targetWidth = Math.max(1, Math.round(width * scale));
+            int targetHeight = Math.max(1, Math.round(height * scale));
+            BufferedImage source = image.getImage();
+            BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                    settings.grayscale() ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = target.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setBackground(Color.WHITE);
+                graphics.clearRect(0, 0, targetWidth, targetHeight);
+                graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            if (settings.grayscale() && settings.lighten() > 0) {
+                float lighten = settings.lighten();
+                target = new RescaleOp(1f - lighten, 255f * lighten, null).filter(target, null);
+            }
+
+            PDImageXObject recompressed = JPEGFactory.createFromImage(document, target, settings.jpegQuality());
+            COSBase softMask = image.getCOSObject().getDictionaryObject(COSName.SMASK);
+            COSBase mask = image.getCOSObject().getDictionaryObject(COSName.MASK);
+            if (softMask != null) {
+                recompressed.getCOSObject().setItem(COSName.SMASK, softMask);
+            }
+            if (mask instanceof COSStream) {
+                recompressed.getCOSObject().setItem(COSName.MASK, mask);
+            }
+
+            // Only a color change justifies a larger stream
+            if (!settings.grayscale() && recompressed.getCOSObject().getLength() >= image.getCOSObject().getLength()) {
+                return image;
+            }
+            imagesRecompressed++;
+            return recompressed;
+        }
+
+        private PDImageXObject blankImage() throws IOException {
+            if (blank == null) {
+                BufferedImage white = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+                white.getRaster().setSample(0, 0, 0, 255);
+                blank = LosslessFactory.createFromImage(document, white);
+            }
+            return blank;
+        }
+
+        /**
+         * Rewrite rg/RG and k/K as gray and lighten g/G. sc/scn/SC/SCN are converted
+         * too while the current color space is gray, RGB or CMYK (device, calibrated
+         * or ICC-based), and cs/CS selecting such a space becomes its initial black in
+         * gray. Pattern, Separation, DeviceN, Indexed and Lab colors are left alone,
+         * as are sc/scn in a form whose color space is inherited from its caller.
+         * Returns the new page contents, or null for forms (rewritten in place) and
+         * streams with nothing to change.
+         */
+        private PDStream rewriteColors(PDContentStream stream) throws IOException {
+            List<Object> tokens = new PDFStreamParser(stream).parse();
+            List<Object> rewritten = new ArrayList<>(tokens.size());
+            List<Object> operands = new ArrayList<>();
+            int converted = 0;
+
+            // Current non-stroking and stroking color spaces, saved and restored with q/Q
+            ColorState state = new ColorState(null, null);
+            Deque<ColorState> saved = new ArrayDeque<>();
+
+            for (Object token : tokens) {
+                if (!(token instanceof Operator operator)) {
+                    operands.add(token);
+                    continue;
+                }
+                String name = operator.getName();
+                boolean stroking = Character.isUpperCase(name.charAt(0));
+                Float gray = null;
+                switch (name) {
+                    case "q" -> saved.push(state);
+                    case "Q" -> state = saved.isEmpty() ? state : saved.pop();
+                    case "cs", "CS" -> {
+                        Space space = operands.size() == 1 ? spaceOf(operands.get(0), stream.getResources()) : null;
+                        state = state.with(stroking, space);
+                        if (space != null) {
+                            gray = 0f;  // initial color of these spaces is black
+                        }
+                    }
+                    case "sc", "scn", "SC", "SCN" -> gray = grayOf(stroking ? state.stroking() : state.nonStroking(), operands);
+                    default -> {
+                        gray = grayOf(name, operands);
+                        if (gray != null) {
+                            state = state.with(stroking, Space.GRAY);
+                        }
+                    }
+                }
+                if (gray != null) {
+                    rewritten.add(new COSFloat(lighten(gray)));
+                    rewritten.add(Operator.getOperator(stroking ? "G" : "g"));
+                    converted++;
+                } else {
+                    rewritten.addAll(operands);
+                    rewritten.add(operator);
+                }
+                operands.clear();
+            }
+            rewritten.addAll(operands);
+
+            if (converted == 0) {
+                return null;
+            }
+            colorOperatorsConverted += converted;
+
+            if (stream instanceof PDFormXObject form) {
+                try (OutputStream out = form.getCOSObject().createOutputStream(COSName.FLATE_DECODE)) {
+                    new ContentStreamWriter(out).writeTokens(rewritten);
+                }
+                return null;
+            }
+            PDStream contents = new PDStream(document);
+            try (OutputStream out = contents.createOutputStream(COSName.FLATE_DECODE)) {
+                new ContentStreamWriter(out).writeTokens(rewritten);
+            }
+            return contents;
+        }
+
+        private float lighten(float gray) {
+            return 1f - (1f - gray) * (1f - settings.lighten());
+        }
+
+        /**
+         * Gray level for a color operator and its operands, or null if it is not one we convert
+         */
+        private static Float grayOf(String operator, List<Object> operands) {
+            return switch (operator) {
+                case "g", "G" -> grayOf(Space.GRAY, operands);
+                case "rg", "RG" -> grayOf(Space.RGB, operands);
+                case "k", "K" -> grayOf(Space.CMYK, operands);
+                default -> null;
+            };
+        }
+
+        /**
+         * Gray level for color components in a space, or null if they do not fit it
+         */
+        private static Float grayOf(Space space, List<Object> operands) {
+            if (space == null || operands.size() != space.components) {
+                return null;
+            }
+            float[] c = new float[operands.size()];
+            for (int i = 0; i < c.length; i++) {
+                Float value = number(operands.get(i));
+                if (value == null) {
+                    return null;
+                }
+                c[i] = value;
+            }
+            return switch (space) {
+                case GRAY -> c[0];
+                case RGB -> 0.299f * c[0] + 0.587f * c[1] + 0.114f * c[2];
+                case CMYK -> Math.max(0f, 1f - Math.min(1f, 0.299f * c[0] + 0.587f * c[1] + 0.114f * c[2] + c[3]));
+            };
+        }
+
+        /**
+         * The convertible space a cs/CS operand names, or null for anything else
+         */
+        private static Space spaceOf(Object operand, PDResources resources) {
+            if (!(operand instanceof COSName name)) {
+                return null;
+            }
+            switch (name.getName()) {
+                case "DeviceGray", "G" -> { return Space.GRAY; }
+                case "DeviceRGB", "RGB" -> { return Space.RGB; }
+                case "DeviceCMYK", "CMYK" -> { return Space.CMYK; }
+                default -> { }
+            }
+            if (resources == null) {
+                return null;
+            }
+            try {
+                PDColorSpace colorSpace = resources.getColorSpace(name);
+                if (colorSpace instanceof PDDeviceGray || colorSpace instanceof PDCalGray) {
+                    return Space.GRAY;
+                }
+                if (colorSpace instanceof PDDeviceRGB || colorSpace instanceof PDCalRGB) {
+                    return Space.RGB;
+                }
+                if (colorSpace instanceof PDDeviceCMYK) {
+                    return Space.CMYK;
+                }
+                if (colorSpace instanceof PDICCBased icc) {
+                    return switch (icc.getNumberOfComponents()) {
+                        case 1 -> Space.GRAY;
+                        case 3 -> Space.RGB;
+                        case 4 -> Space.CMYK;
+                        default -> null;
+                    };
+                }
+            } catch (IOException | RuntimeException e) {
+                // Missing or broken color space: leave its colors alone
+            }
+            return null;
+        }
+
+        private static Float number(Object token) {
+            return token instanceof COSNumber number ? number.floatValue() : null;
+        }
+
+        private static String filterOf(PDImageXObject image) {
+            List<COSName> filters = image.getStream().getFilters();
+            return filters.isEmpty() ? null : filters.get(filters.size() - 1).getName();
+        }
+    }
+}
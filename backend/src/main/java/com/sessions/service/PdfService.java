@@ -1,25 +1,39 @@
 package com.sessions.service;
 
+import com.sessions.model.InkCoverage;
+import com.sessions.model.PdfContent;
 import com.sessions.model.PdfSession;
 import com.sessions.repository.PdfSessionRepository;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.function.Function;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.genai.Client;
+import com.google.genai.ResponseStream;
 import com.google.genai.types.Content;
+import com.google.genai.types.GenerateContentConfig;
 import com.google.genai.types.GenerateContentResponse;
 import com.google.genai.types.Part;
+import com.google.genai.types.Schema;
+import com.google.genai.types.Type;
+import com.google.genai.types.UploadFileConfig;
 
 // Use Builder class for instantiation. Explicitly set the API key to use Gemini
 // Developer backend.
@@ -28,249 +42,715 @@ import com.google.genai.types.Part;
 @Service
 public class PdfService {
     
+    private static final String GEMINI_MODEL = "gemini-2.5-flash";
+    
+    private static final ObjectMapper JSON = new ObjectMapper();
+    
+    // Gemini keeps uploaded files for 48 hours; re-upload a little before that
+    private static final Duration GEMINI_FILE_TTL = Duration.ofHours(48);
+    private static final Duration GEMINI_FILE_MARGIN = Duration.ofMinutes(30);
+    
+    private static final String ANALYSIS_PROMPT =
+            "Review this pdf for sustainability. Suggest three ways it could be edited to improve ink and page usage, "
+            + "each without markdown and at most 40 words. Also score the document out of 100 points, taking into "
+            + "consideration effective page use and ink conservation from a sustainability standpoint.";
+    
+    private static final String REPORT_PROMPT = """
+            Analyze this PDF and create an HTML5 document imitation with exactly 3 specific edits to reduce ink and page usage.
+            
+            Return ONLY a valid standalone HTML5 document with this structure, try to imitate my input pdf file with the changes applied and generate an html file back
+             <!DOCTYPE html>.
+            """;
+    
+    // Constrains the analysis response to {"suggestions": [3 strings], "score": 0-100}
+    private static final GenerateContentConfig ANALYSIS_CONFIG = GenerateContentConfig.builder()
+            .responseMimeType("application/json")
+            .responseSchema(Schema.builder()
+                    .type(Type.Known.OBJECT)
+                    .properties(analysisProperties())
+                    .required(List.of("suggestions", "score"))
+                    .propertyOrdering(List.of("suggestions", "score"))
+                    .build())
+            .build();
+    
+    // Insertion-ordered, so ANALYSIS_CONFIG.toJson(), which is part of the cache key, is the same in every JVM
+    private static Map<String, Schema> analysisProperties() {
+        Map<String, Schema> properties = new LinkedHashMap<>();
+        properties.put("suggestions", Schema.builder()
+                .type(Type.Known.ARRAY)
+                .items(Schema.builder().type(Type.Known.STRING).build())
+                .minItems(3L)
+                .maxItems(3L)
+                .build());
+        properties.put("score", Schema.builder()
+                .type(Type.Known.INTEGER)
+                .minimum(0.0)
+                .maximum(100.0)
+                .build());
+        return properties;
+    }
+    
     @Autowired
     private PdfSessionRepository pdfSessionRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private InkService inkService;
+    
+    @Autowired
+    private ContentStore contentStore;
+    
+    @Autowired
+    private GeminiCache geminiCache;
+    
+    @Autowired
+    private PdfOptimizer pdfOptimizer;
+    
+    @Autowired
+    private PageImposer pageImposer;
+    
+    @Autowired
+    private PdfMemoryBudget memoryBudget;
+    
+    @Autowired
+    private GeminiBulkhead geminiBulkhead;
+    
+    @Autowired
+    private UserStatsService userStatsService;
+    
+    @Autowired
+    private OrgMetricsService orgMetricsService;
+    
+    @Autowired
+    private SessionTransitions sessionTransitions;
+    
     @Value("${pdf.storage.path:./pdf-storage}")
     private String storagePath;
 
     @Value("${gemini.api.key}")
     private String geminiKey;
 
-    private Client geminiClient;
+    // Built on first use by whichever job thread gets there first
+    private volatile Client geminiClient;
+    
+    // Content analyses in flight on this node, by content hash and mode
+    private final SingleFlight<ContentAnalysis> contentFlights = new SingleFlight<>();
 
     private Client getClient() {
-    if (geminiClient == null) {
-        if (geminiKey == null || geminiKey.isEmpty()) {
-            throw new RuntimeException("GEMINI_API_KEY is not set");
+        Client client = geminiClient;
+        if (client == null) {
+            synchronized (this) {
+                client = geminiClient;
+                if (client == null) {
+                    if (geminiKey == null || geminiKey.isEmpty()) {
+                        throw new RuntimeException("GEMINI_API_KEY is not set");
+                    }
+                    client = Client.builder().apiKey(geminiKey).build();
+                    geminiClient = client;
+                }
+            }
         }
-        geminiClient = Client.builder().apiKey(geminiKey).build();
+        return client;
     }
-    return geminiClient;
-}
 
     /**
-     * Upload and store a PDF file
+     * Upload and store a PDF file.
+     * Identical content is stored once and shared between sessions.
      */
     public PdfSession uploadPdf(MultipartFile file) throws IOException {
-        // Create storage directory if it doesn't exist
-        Path storageDir = Paths.get(storagePath);
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
+        PdfContent content;
+        try (InputStream in = file.getInputStream()) {
+            content = contentStore.store(in);
         }
         
-        // Generate unique filename
-        String fileId = UUID.randomUUID().toString();
-        String originalFileName = file.getOriginalFilename();
-        String storedFileName = fileId + "_original.pdf";
-        Path filePath = storageDir.resolve(storedFileName);
-        
-        // Save file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
         // Create session record
         PdfSession session = new PdfSession();
-        session.setOriginalFileName(originalFileName);
-        session.setOriginalFilePath(filePath.toString());
-        session.setStatus("UPLOADED");
+        session.setOriginalFileName(file.getOriginalFilename());
+        session.setOriginalFilePath(content.getFilePath());
+        session.setContentHash(content.getId());
+        session.setStatus(SessionTransitions.UPLOADED);
+        session.setStatusChangedAt(Instant.now());
         
         return pdfSessionRepository.save(session);
     }
     
     /**
-     * Analyze a PDF and calculate metrics
+     * Analyze a PDF and calculate metrics.
+     * Exact mode measures CMYK coverage on every page instead of sampling.
+     * The session must already be ANALYZING (see SessionTransitions.begin);
+     * results and the outcome status are written in one partial update.
      */
-    public PdfSession analyzePdf(String sessionId) throws IOException {
+    public PdfSession analyzePdf(String sessionId, boolean exact) throws IOException {
         PdfSession session = pdfSessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        // What this session added to its owners' usage totals before this run
+        UserStatsService.Contribution before = UserStatsService.Contribution.of(session);
         
-        session.setStatus("ANALYZING");
-        pdfSessionRepository.save(session);
-        
-        try (PDDocument document = Loader.loadPDF(new File(session.getOriginalFilePath()))) {
-            // Get page count
-            int pageCount = document.getNumberOfPages();
-            session.setPagesBefore(pageCount);
-            
-            // Calculate ink usage
-            double inkUsage = calculateInkUsage(document);
-            session.setInkBefore(inkUsage);
-            
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-
-            Content content =
-            Content.fromParts(
-            Part.fromText("Suggest three ways this pdf could be edited to improve ink and page usage, for sustainability purposes. Additionally, don't use any markdown and maximum 40 words. Divide reasons with the string $NEWLINE$"),
-            Part.fromBytes(baos.toByteArray(),"application/pdf"));
-            
+        // Same bytes were analyzed before: reuse the result
+        PdfContent cached = contentStore.findAnalysis(session.getContentHash(), exact);
+        if (cached != null) {
+            session.setPagesBefore(cached.getPagesBefore());
+            session.setInkBefore(cached.getInkBefore());
+            session.setInkCoverage(cached.getInkCoverage());
+            session.setSuggestions(cached.getSuggestions());
+            session.setOptimizingScore(cached.getOptimizingScore());
+            return finishAnalysis(session, before);
+        }
         
-            GenerateContentResponse response =
-            getClient().models.generateContent("gemini-2.5-flash", content, null);
-
-            // Generate AI suggestions based on document analysis
-            List<String> suggestions = Arrays.asList(response.text().split("\\$NEWLINE\\$"));
-            session.setSuggestions(suggestions);
-
-
-            content =
-            Content.fromParts(
-            Part.fromText("Give this document a score out of 100 points, taking into consideration effective page use and ink conservation from an a sustainability standpoint. Return the score as a whole number with NO OTHER TEXT."),
-            Part.fromBytes(baos.toByteArray(),"application/pdf"));
-
-
-            response =
-            getClient().models.generateContent("gemini-2.5-flash", content, null);
-            
-            int score = 50;
-            try {
-                score = Integer.parseInt(response.text());
-            } catch (Exception e) {}
-            session.setOptimizingScore(score);
+        try {
+            // Sessions analyzing the same bytes in the same mode at the same time share one run
+            ContentAnalysis result = session.getContentHash() == null
+                    ? analyzeContent(session, exact)
+                    : contentFlights.run(contentFlightKey(session, exact), () -> analyzeContent(session, exact));
+            session.setPagesBefore(result.pages());
+            session.setInkBefore(result.ink());
+            session.setInkCoverage(result.coverage());
+            session.setSuggestions(result.suggestions());
+            session.setOptimizingScore(result.score());
             
-            session.setStatus("ANALYZED");
-            return pdfSessionRepository.save(session);
+            return finishAnalysis(session, before);
         } catch (Exception e) {
-            session.setStatus("ERROR");
-            pdfSessionRepository.save(session);
+            // Earlier results stay as they were
+            sessionTransitions.finish(sessionId, SessionTransitions.ANALYZING, SessionTransitions.ERROR, null);
+            session.setStatus(SessionTransitions.ERROR);
             throw new IOException("Failed to analyze PDF: " + e.getMessage(), e);
         }
     }
     
     /**
-     * Generate HTML report with optimization recommendations
+     * True when analyzing a session would call Gemini: there is no stored analysis
+     * of its content in this mode, no cached Gemini answer, and no analysis of the
+     * same content running on this node. False for unknown sessions.
+     */
+    public boolean analysisNeedsGemini(String sessionId, boolean exact) {
+        PdfSession session = pdfSessionRepository.findById(sessionId).orElse(null);
+        if (session == null) {
+            return false;
+        }
+        if (session.getContentHash() == null) {
+            return true;
+        }
+        if (contentStore.findAnalysis(session.getContentHash(), exact) != null
+                || contentFlights.isInFlight(contentFlightKey(session, exact))) {
+            return false;
+        }
+        return !geminiCache.contains(cacheKey(session, ANALYSIS_PROMPT, ANALYSIS_CONFIG));
+    }
+    
+    /**
+     * Optimize a PDF locally: recompress or drop images, convert to gray/draft,
+     * impose several pages per sheet and rewrite with compressed object streams.
+     * Pages and ink after are measured on the output. The session must already
+     * be OPTIMIZING (see SessionTransitions.begin).
      */
     public PdfSession optimizePdf(String sessionId, Integer inkSaverLevel, Integer pageSaverLevel, 
                                    Boolean preserveQuality, Boolean excludeImages) throws IOException {
         PdfSession session = pdfSessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
         
-        session.setStatus("OPTIMIZING");
+        // What an earlier optimization of this session already counted toward org metrics
+        OrgMetricsService.Savings before = OrgMetricsService.Savings.of(session);
+        
         session.setInkSaverLevel(inkSaverLevel);
         session.setPageSaverLevel(pageSaverLevel);
         session.setPreserveQuality(preserveQuality);
         session.setExcludeImages(excludeImages);
-        pdfSessionRepository.save(session);
+        sessionTransitions.patch(sessionId, new Update()
+                .set("inkSaverLevel", inkSaverLevel)
+                .set("pageSaverLevel", pageSaverLevel)
+                .set("preserveQuality", preserveQuality)
+                .set("excludeImages", excludeImages));
         
-        try (PDDocument document = Loader.loadPDF(new File(session.getOriginalFilePath()))) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            document.save(baos);
-
-            // Generate HTML report with 3 specific edits
-            String prompt = """
-                Analyze this PDF and create an HTML5 document imitation with exactly 3 specific edits to reduce ink and page usage.
-                
-                Return ONLY a valid standalone HTML5 document with this structure, try to imitate my input pdf file with the changes applied and generate an html file back
-                 <!DOCTYPE html>.
-                """;
-
-            Content content = Content.fromParts(
-                Part.fromText(prompt),
-                Part.fromBytes(baos.toByteArray(), "application/pdf")
-            );
-
-            GenerateContentResponse response = getClient().models.generateContent("gemini-2.5-flash", content, null);
-
-            // Save HTML report
-            String reportFileName = session.getId() + "_report.html";
-            Path reportPath = Paths.get(storagePath).resolve(reportFileName);
-            
-            String cleanedHtml = sanitizeHtmlResponse(response.text());
-            Files.writeString(reportPath, cleanedHtml);
+        try {
+            Path optimizedPath = Paths.get(storagePath).resolve(session.getId() + "_optimized.pdf");
+            File original = new File(session.getOriginalFilePath());
+            int pagesPerSheet = PageImposer.pagesPerSheet(pageSaverLevel);
             
-            // Store report path (reusing optimizedFilePath field)
-            session.setOptimizedFilePath(reportPath.toString());
-            session.setPagesAfter(document.getNumberOfPages());
+            PdfOptimizer.Result result;
+            int pagesAfter;
+            if (pagesPerSheet > 1) {
+                Path staged = Paths.get(storagePath).resolve(session.getId() + "_staged.pdf");
+                try {
+                    result = pdfOptimizer.optimize(original, staged, inkSaverLevel, preserveQuality, excludeImages);
+                    pagesAfter = pageImposer.impose(staged.toFile(), optimizedPath, pagesPerSheet);
+                } finally {
+                    Files.deleteIfExists(staged);
+                }
+                result.getChangesApplied().add("Printed " + pagesPerSheet + " pages per sheet");
+            } else {
+                result = pdfOptimizer.optimize(original, optimizedPath, inkSaverLevel, preserveQuality, excludeImages);
+                pagesAfter = result.getPages();
+            }
             
-            // Estimate savings based on analysis
-            double inkSavings = 0.15 + (inkSaverLevel != null ? inkSaverLevel * 0.002 : 0);
-            session.setInkAfter(session.getInkBefore() * (1 - inkSavings));
+            // Ink is per-page coverage; scale it back to source pages so it stays comparable to inkBefore
+            double inkPerSheet = inkService.calculateInkUsage(optimizedPath.toFile(), pagesAfter);
             
-            List<String> changesApplied = new ArrayList<>();
-            changesApplied.add("Generated optimization report with 3 recommendations");
-            session.setChangesApplied(changesApplied);
-            session.setStatus("COMPLETE");
+            session.setOptimizedFilePath(optimizedPath.toString());
+            session.setOptimizedHash(ContentStore.hash(optimizedPath));
+            session.setPagesAfter(pagesAfter);
+            session.setInkAfter(result.getPages() > 0 ? inkPerSheet * pagesAfter / result.getPages() : 0.0);
+            session.setChangesApplied(result.getChangesApplied());
+            session.setStatus(SessionTransitions.COMPLETE);
             
-            return pdfSessionRepository.save(session);
+            Update results = new Update()
+                    .set("optimizedFilePath", session.getOptimizedFilePath())
+                    .set("optimizedHash", session.getOptimizedHash())
+                    .set("pagesAfter", session.getPagesAfter())
+                    .set("inkAfter", session.getInkAfter())
+                    .set("changesApplied", session.getChangesApplied());
+            if (sessionTransitions.finish(sessionId, SessionTransitions.OPTIMIZING, SessionTransitions.COMPLETE, results)) {
+                orgMetricsService.optimizationChanged(before, OrgMetricsService.Savings.of(session));
+            }
+            return session;
         } catch (Exception e) {
-            session.setStatus("ERROR");
-            pdfSessionRepository.save(session);
+            sessionTransitions.finish(sessionId, SessionTransitions.OPTIMIZING, SessionTransitions.ERROR, null);
+            session.setStatus(SessionTransitions.ERROR);
+            throw new IOException("Failed to optimize PDF: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Writes a generated report to the client
+     */
+    @FunctionalInterface
+    public interface ReportWriter {
+        void writeTo(OutputStream client) throws IOException;
+    }
+    
+    /**
+     * Start a streamed HTML report with 3 recommended edits.
+     * The PDF is uploaded to Gemini if needed and the Gemini slot is taken here,
+     * before any of the response is sent, so a busy Gemini surfaces as
+     * GeminiBusyException; a cached report needs neither. The upload finishes
+     * before the stream's slot is taken, so a stream never holds one slot while
+     * waiting for another. The returned writer generates the report and releases
+     * the slot when done.
+     */
+    public ReportWriter openReportStream(String sessionId) throws IOException {
+        PdfSession session = pdfSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        String key = cacheKey(session, REPORT_PROMPT, null);
+        String cached = key != null ? geminiCache.get(key) : null;
+        Part pdf = null;
+        if (cached == null) {
+            try {
+                pdf = pdfPart(session);
+            } catch (GeminiBusyException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // Not "session not found"; the caller maps RuntimeException to 404
+                throw new IOException("Gemini file upload failed: " + e.getMessage(), e);
+            }
+        }
+        Part uploaded = pdf;
+        GeminiBulkhead.Permit permit = cached == null ? geminiBulkhead.acquire() : null;
+        return client -> {
+            try {
+                streamReport(session, key, cached, uploaded, client);
+            } finally {
+                if (permit != null) {
+                    permit.close();
+                }
+            }
+        };
+    }
+    
+    /**
+     * Write the report to the client and the report file at once.
+     * Chunks are sanitized as they arrive; if the client goes away the report is
+     * still finished on disk. pdf is the uploaded original, needed unless cached is set.
+     */
+    private void streamReport(PdfSession session, String key, String cached, Part pdf,
+                              OutputStream client) throws IOException {
+        String sessionId = session.getId();
+        Path reportPath = reportPath(session);
+        ClientTee out = new ClientTee(client);
+        // Hashed as it is written, for the download ETag
+        MessageDigest digest = ContentStore.sha256();
+        try (Writer report = new BufferedWriter(new OutputStreamWriter(
+                new DigestOutputStream(Files.newOutputStream(reportPath), digest), StandardCharsets.UTF_8))) {
+            if (cached != null) {
+                String cleanedHtml = sanitizeHtmlResponse(cached);
+                report.write(cleanedHtml);
+                out.write(cleanedHtml);
+            } else {
+                Content content = Content.fromParts(
+                    Part.fromText(REPORT_PROMPT),
+                    pdf
+                );
+                HtmlStreamSanitizer sanitizer = new HtmlStreamSanitizer();
+                StringBuilder raw = new StringBuilder();
+                try (ResponseStream<GenerateContentResponse> stream =
+                             getClient().models.generateContentStream(GEMINI_MODEL, content, null)) {
+                    for (GenerateContentResponse chunk : stream) {
+                        String text = chunk.text();
+                        if (text == null) {
+                            continue;
+                        }
+                        raw.append(text);
+                        String clean = sanitizer.feed(text);
+                        report.write(clean);
+                        out.write(clean);
+                    }
+                }
+                String rest = sanitizer.finish();
+                report.write(rest);
+                out.write(rest);
+                
+                if (key != null) {
+                    geminiCache.put(key, raw.toString());
+                }
+            }
+        } catch (Exception e) {
+            Files.deleteIfExists(reportPath);
             throw new IOException("Failed to generate report: " + e.getMessage(), e);
         }
+        
+        session.setReportFilePath(reportPath.toString());
+        session.setReportHash(HexFormat.of().formatHex(digest.digest()));
+        sessionTransitions.patch(sessionId, new Update()
+                .set("reportFilePath", session.getReportFilePath())
+                .set("reportHash", session.getReportHash()));
     }
     
     /**
-     * Get HTML report content
+     * Generate the HTML report in one request and save it, replacing any earlier report
      */
-    public String getReportHtml(String sessionId) throws IOException {
+    public String generateReport(String sessionId) throws IOException {
         PdfSession session = pdfSessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
         
-        if (session.getOptimizedFilePath() == null) {
-            throw new RuntimeException("Report not generated yet");
+        String cleanedHtml = generate(session, REPORT_PROMPT, null, PdfService::sanitizeHtmlResponse);
+        if (cleanedHtml == null || cleanedHtml.isEmpty()) {
+            throw new IOException("Gemini returned an empty report");
         }
-        
-        return Files.readString(Paths.get(session.getOptimizedFilePath()));
+        Path reportPath = reportPath(session);
+        byte[] bytes = cleanedHtml.getBytes(StandardCharsets.UTF_8);
+        Files.write(reportPath, bytes);
+        session.setReportFilePath(reportPath.toString());
+        session.setReportHash(HexFormat.of().formatHex(ContentStore.sha256().digest(bytes)));
+        sessionTransitions.patch(sessionId, new Update()
+                .set("reportFilePath", session.getReportFilePath())
+                .set("reportHash", session.getReportHash()));
+        return cleanedHtml;
     }
     
     /**
-     * Get PDF bytes for download
+     * Get a generated HTML report; never calls Gemini
      */
-    public byte[] getPdfBytes(String sessionId, String type) throws IOException {
+    public String getReportHtml(String sessionId) throws IOException {
         PdfSession session = pdfSessionRepository.findById(sessionId)
                 .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
         
-        String filePath = "original".equals(type) 
-                ? session.getOriginalFilePath() 
-                : session.getOptimizedFilePath();
+        if (session.getReportFilePath() == null) {
+            throw new RuntimeException("Report not generated: " + sessionId);
+        }
+        return Files.readString(Paths.get(session.getReportFilePath()));
+    }
+    
+    /**
+     * Get the file behind a download without reading it
+     */
+    public Path getFilePath(PdfSession session, String type) {
+        String filePath = switch (type) {
+            case "original" -> session.getOriginalFilePath();
+            case "report" -> session.getReportFilePath();
+            default -> session.getOptimizedFilePath();
+        };
         
         if (filePath == null) {
             throw new RuntimeException("File not found for type: " + type);
         }
         
-        return Files.readAllBytes(Paths.get(filePath));
+        return Paths.get(filePath);
+    }
+    
+    /**
+     * ETag for a download without reading the file.
+     * Strong from the hash taken when the file was written; files written before
+     * hashes were recorded get a weak tag from size and modification time.
+     */
+    public String getEntityTag(PdfSession session, String type) throws IOException {
+        String hash = switch (type) {
+            case "original" -> session.getContentHash();
+            case "report" -> session.getReportHash();
+            default -> session.getOptimizedHash();
+        };
+        if (hash != null) {
+            return "\"" + hash + "\"";
+        }
+        Path path = getFilePath(session, type);
+        return "W/\"" + Files.size(path) + "-" + Files.getLastModifiedTime(path).toMillis() + "\"";
     }
     
     /**
-     * Delete session and associated files
+     * Delete session and associated files.
+     * The record is removed first and atomically, so a session the reaper
+     * removes at the same moment has its files released only once.
      */
     public void deleteSession(String sessionId) throws IOException {
-        PdfSession session = pdfSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new RuntimeException("Session not found: " + sessionId));
+        if (!pdfSessionRepository.existsById(sessionId)) {
+            throw new RuntimeException("Session not found: " + sessionId);
+        }
+        PdfSession session = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("id").is(sessionId)), PdfSession.class);
+        if (session == null) {
+            return;  // reaped meanwhile
+        }
+        userStatsService.sessionChanged(sessionId, UserStatsService.Contribution.of(session), null);
         
-        // Delete files
-        if (session.getOriginalFilePath() != null) {
+        // Delete files; shared originals are only removed with their last session
+        if (session.getContentHash() != null) {
+            contentStore.release(session.getContentHash());
+        } else if (session.getOriginalFilePath() != null) {
             Files.deleteIfExists(Paths.get(session.getOriginalFilePath()));
         }
         if (session.getOptimizedFilePath() != null) {
             Files.deleteIfExists(Paths.get(session.getOptimizedFilePath()));
         }
+        if (session.getReportFilePath() != null) {
+            Files.deleteIfExists(Paths.get(session.getReportFilePath()));
+        }
+    }
+    
+    /**
+     * Coalescing counters for content analyses
+     */
+    public Map<String, Object> analysisFlightStats() {
+        return contentFlights.stats();
+    }
+    
+    // ========== Private Helper Methods ==========
+    
+    /**
+     * Render, measure and ask Gemini about a session's PDF.
+     * Fills in the session as it goes, since the Gemini calls work from it.
+     */
+    private ContentAnalysis analyzeContent(PdfSession session, boolean exact) throws IOException {
+        // Get page count; the document is closed again before ink workers open their own copies
+        File pdfFile = new File(session.getOriginalFilePath());
+        int pageCount;
+        try (PdfMemoryBudget.Lease lease = memoryBudget.open(pdfFile)) {
+            pageCount = lease.document().getNumberOfPages();
+        }
+        session.setPagesBefore(pageCount);
+        
+        // Calculate ink usage
+        InkCoverage coverage = null;
+        if (exact) {
+            coverage = inkService.calculateInkCoverage(pdfFile, pageCount);
+            session.setInkCoverage(coverage);
+            session.setInkBefore(InkService.averageDarkness(coverage));
+        } else {
+            session.setInkBefore(inkService.calculateInkUsage(pdfFile, pageCount));
+        }
+        
+        // One structured request for both suggestions and score
+        AiAnalysis analysis;
+        try {
+            analysis = generate(session, ANALYSIS_PROMPT, ANALYSIS_CONFIG, PdfService::parseAnalysis);
+        } catch (GeminiBusyException e) {
+            // Gemini is saturated: answer locally rather than fail the job
+            analysis = null;
+        }
+        boolean fromGemini = analysis != null;
+        if (!fromGemini) {
+            analysis = localAnalysis(session);
+        }
+        session.setSuggestions(analysis.suggestions());
+        session.setOptimizingScore(analysis.score());
+        // Only Gemini's answers are worth sharing with later uploads
+        if (fromGemini) {
+            contentStore.saveAnalysis(session.getContentHash(), session);
+        }
+        
+        return new ContentAnalysis(pageCount, session.getInkBefore(), coverage,
+                analysis.suggestions(), analysis.score());
+    }
+    
+    /**
+     * Write an analysis and move the session to ANALYZED, then move its owners'
+     * usage totals and the org metrics to match
+     */
+    private PdfSession finishAnalysis(PdfSession session, UserStatsService.Contribution before) {
+        Update results = new Update()
+                .set("pagesBefore", session.getPagesBefore())
+                .set("inkBefore", session.getInkBefore())
+                .set("inkCoverage", session.getInkCoverage())
+                .set("suggestions", session.getSuggestions())
+                .set("optimizingScore", session.getOptimizingScore());
+        session.setStatus(SessionTransitions.ANALYZED);
+        // Skipped if the session was deleted meanwhile
+        if (sessionTransitions.finish(session.getId(), SessionTransitions.ANALYZING, SessionTransitions.ANALYZED, results)) {
+            UserStatsService.Contribution after = UserStatsService.Contribution.of(session);
+            userStatsService.sessionChanged(session.getId(), before, after);
+            orgMetricsService.analysisChanged(before, after);
+        }
+        return session;
+    }
+    
+    /**
+     * Ask Gemini about a session's PDF, going through the response cache.
+     * The parser returns null for unusable responses, which are never cached;
+     * sessions without a content hash are never cached either.
+     */
+    private <T> T generate(PdfSession session, String prompt, GenerateContentConfig config,
+                           Function<String, T> parser) throws IOException {
+        String key = cacheKey(session, prompt, config);
+        if (key != null) {
+            String cached = geminiCache.get(key);
+            T parsed = cached != null ? parser.apply(cached) : null;
+            if (parsed != null) {
+                return parsed;
+            }
+        }
+        
+        Content content = Content.fromParts(
+            Part.fromText(prompt),
+            pdfPart(session)
+        );
+        String text;
+        GeminiBulkhead.Permit permit = geminiBulkhead.acquire();
+        try {
+            text = getClient().models.generateContent(GEMINI_MODEL, content, config).text();
+        } finally {
+            permit.close();
+        }
+        T parsed = text != null ? parser.apply(text) : null;
         
-        // Delete session record
-        pdfSessionRepository.deleteById(sessionId);
+        if (key != null && parsed != null) {
+            geminiCache.put(key, text);
+        }
+        return parsed;
     }
     
     /**
-     * Clean up expired sessions
+     * Cache key for a prompt about the session's PDF, or null if the session has no content hash
      */
-    public void cleanupExpiredSessions() {
-        List<PdfSession> expired = pdfSessionRepository.findByExpiresAtBefore(Instant.now());
-        for (PdfSession session : expired) {
+    private static String cacheKey(PdfSession session, String prompt, GenerateContentConfig config) {
+        if (session.getContentHash() == null) {
+            return null;
+        }
+        String version = config != null ? prompt + config.toJson() : prompt;
+        return GeminiCache.key(session.getContentHash(), GEMINI_MODEL, version);
+    }
+    
+    private static String contentFlightKey(PdfSession session, boolean exact) {
+        return session.getContentHash() + (exact ? ":exact" : ":sampled");
+    }
+    
+    private Path reportPath(PdfSession session) {
+        return Paths.get(storagePath).resolve(session.getId() + "_report.html");
+    }
+    
+    /**
+     * Forwards report chunks to the client, flushing each one so it goes out as
+     * its own HTTP chunk; stops writing once the client has disconnected
+     */
+    private static class ClientTee {
+        private final Writer writer;
+        private boolean open = true;
+        
+        ClientTee(OutputStream client) {
+            this.writer = new OutputStreamWriter(client, StandardCharsets.UTF_8);
+        }
+        
+        void write(String text) {
+            if (!open || text.isEmpty()) {
+                return;
+            }
             try {
-                deleteSession(session.getId());
+                writer.write(text);
+                writer.flush();
             } catch (IOException e) {
-                System.err.println("Failed to delete expired session: " + session.getId());
+                open = false;
             }
         }
     }
     
-    // ========== Private Helper Methods ==========
+    /**
+     * Reference to the session's PDF in the Gemini Files API.
+     * The original is streamed from disk on first use; the handle is kept on the
+     * session and reused by later prompts until Gemini expires it.
+     */
+    private Part pdfPart(PdfSession session) throws IOException {
+        Instant now = Instant.now();
+        if (session.getGeminiFileUri() == null || session.getGeminiFileExpiresAt() == null
+                || session.getGeminiFileExpiresAt().isBefore(now.plus(GEMINI_FILE_MARGIN))) {
+            com.google.genai.types.File uploaded;
+            GeminiBulkhead.Permit permit = geminiBulkhead.acquire();
+            try {
+                uploaded = getClient().files.upload(session.getOriginalFilePath(),
+                        UploadFileConfig.builder().mimeType("application/pdf").build());
+            } finally {
+                permit.close();
+            }
+            session.setGeminiFileUri(uploaded.uri()
+                    .orElseThrow(() -> new IOException("Gemini file upload returned no URI")));
+            session.setGeminiFileExpiresAt(uploaded.expirationTime().orElse(now.plus(GEMINI_FILE_TTL)));
+            sessionTransitions.patch(session.getId(), new Update()
+                    .set("geminiFileUri", session.getGeminiFileUri())
+                    .set("geminiFileExpiresAt", session.getGeminiFileExpiresAt()));
+        }
+        return Part.fromUri(session.getGeminiFileUri(), "application/pdf");
+    }
+    
+    /**
+     * Parse and validate a structured analysis response; null if anything is off
+     */
+    static AiAnalysis parseAnalysis(String json) {
+        try {
+            JsonNode root = JSON.readTree(json);
+            JsonNode suggestionsNode = root.path("suggestions");
+            JsonNode scoreNode = root.path("score");
+            if (!suggestionsNode.isArray() || !scoreNode.canConvertToInt()) {
+                return null;
+            }
+            
+            List<String> suggestions = new ArrayList<>();
+            for (JsonNode item : suggestionsNode) {
+                if (!item.isTextual() || item.asText().isBlank()) {
+                    return null;
+                }
+                suggestions.add(item.asText().trim());
+            }
+            int score = scoreNode.asInt();
+            if (suggestions.isEmpty() || suggestions.size() > 3 || score < 0 || score > 100) {
+                return null;
+            }
+            return new AiAnalysis(suggestions, score);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Fallback when Gemini's answer is unusable: score from measured ink, generic suggestions
+     */
+    private static AiAnalysis localAnalysis(PdfSession session) {
+        double ink = session.getInkBefore() != null ? session.getInkBefore() : 0.15;
+        int score = (int) Math.round(100 * (1 - Math.min(1.0, ink * 2)));
+        return new AiAnalysis(List.of(
+                "Print in grayscale or draft mode to cut color and toner use",
+                "Reduce margins and font size to fit more content per page",
+                "Print double-sided or several pages per sheet"), score);
+    }
+    
+    private record AiAnalysis(List<String> suggestions, int score) {}
+    
+    /**
+     * Everything an analysis run produces, shared between coalesced sessions
+     */
+    private record ContentAnalysis(int pages, double ink, InkCoverage coverage,
+                                   List<String> suggestions, int score) {}
     
     /**
      * Sanitize AI response to extract clean HTML
      * Removes markdown formatting and extracts HTML content
      */
-    private String sanitizeHtmlResponse(String response) {
+    static String sanitizeHtmlResponse(String response) {
         if (response == null || response.isEmpty()) {
             return response;
         }
@@ -303,71 +783,4 @@ public class PdfService {
         
         return cleaned;
     }
-    
-    /**
-     * Calculate ink usage by rendering pages and measuring darkness
-     */
-    private double calculateInkUsage(PDDocument document) {
-        try {
-            PDFRenderer renderer = new PDFRenderer(document);
-            double totalInk = 0.0;
-            int pageCount = document.getNumberOfPages();
-            
-            // Sample first 10 pages max for performance
-            int samplesToTake = Math.min(pageCount, 10);
-            
-            for (int i = 0; i < samplesToTake; i++) {
-                // Render at 72 DPI for speed
-                BufferedImage image = renderer.renderImageWithDPI(i, 72);
-                double pageInk = calculateImageDarkness(image);
-                totalInk += pageInk;
-            }
-            
-            // Extrapolate for remaining pages
-            if (pageCount > samplesToTake) {
-                double avgInkPerPage = totalInk / samplesToTake;
-                totalInk = avgInkPerPage * pageCount;
-            }
-            
-            // Normalize to 0-1 range
-            return Math.min(1.0, totalInk / pageCount);
-        } catch (Exception e) {
-            // Default fallback
-            return 0.15;
-        }
-    }
-    
-    /**
-     * Calculate darkness/ink coverage of an image
-     */
-    private double calculateImageDarkness(BufferedImage image) {
-        long totalDarkness = 0;
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int totalPixels = width * height;
-        
-        // Sample every 4th pixel for performance
-        for (int y = 0; y < height; y += 4) {
-            for (int x = 0; x < width; x += 4) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-                
-                // Calculate grayscale brightness
-                int brightness = (r + g + b) / 3;
-                // Ink = 1 - brightness (darker = more ink)
-                totalDarkness += (255 - brightness);
-            }
-        }
-        
-        // Normalize
-        int sampledPixels = (width / 4) * (height / 4);
-        return (totalDarkness / (double) sampledPixels) / 255.0;
-    }
-    
-    
-    
-   
-   
 }
@@ -0,0 +1,56 @@
+package com.sessions.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of page-sized raster buffers, keyed by dimensions and image type.
+ * Most documents use one page size, so buffers are reused across pages and requests
+ * instead of allocating a new multi-megabyte image per render.
+ */
+class RasterPool {
+
+    private final int maxIdle;
+    private final Map<Long, Queue<BufferedImage>> idle = new ConcurrentHashMap<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    RasterPool(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrow a buffer; contents are undefined and must be cleared by the caller
+     */
+    BufferedImage acquire(int width, int height, int imageType) {
+        Queue<BufferedImage> queue = idle.get(key(width, height, imageType));
+        BufferedImage image = queue != null ? queue.poll() : null;
+        if (image != null) {
+            idleCount.decrementAndGet();
+            return image;
+        }
+        return new BufferedImage(width, height, imageType);
+    }
+
+    /**
+     * Return a buffer; dropped for the GC once the pool is full
+     */
+    void release(BufferedImage image) {
+        if (image == null) {
+            return;
+        }
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.computeIfAbsent(key(image.getWidth(), image.getHeight(), image.getType()),
+                k -> new ConcurrentLinkedQueue<>()).offer(image);
+    }
+
+    private static long key(int width, int height, int imageType) {
+        return ((long) imageType << 48) | ((long) width << 24) | height;
+    }
+}
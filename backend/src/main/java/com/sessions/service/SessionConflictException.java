@@ -0,0 +1,22 @@
+package com.sessions.service;
+
+/**
+ * Thrown when a session is not in a state the requested transition can start from,
+ * usually because another analyze or optimize run holds it.
+ * Controllers answer it with 409 and the current status.
+ */
+public class SessionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String currentStatus;
+
+    public SessionConflictException(String message, String currentStatus) {
+        super(message);
+        this.currentStatus = currentStatus;
+    }
+
+    public String getCurrentStatus() {
+        return currentStatus;
+    }
+}
@@ -0,0 +1,284 @@
+package com.sessions.service;
+
+import com.sessions.model.PdfSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes expired sessions and files nothing references.
+ * Expired sessions are read in expiresAt order, a batch at a time, and each
+ * one is removed with findAndRemove and then has its files deleted, on a small
+ * I/O pool. A run stops after max-batches, so a backlog is worked off over
+ * several short runs rather than one long one. A slower sweep walks the
+ * storage directory for files left behind by crashes or failed deletes.
+ */
+@Service
+public class SessionReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionReaper.class);
+
+    // {sessionId}_optimized.pdf, {sessionId}_staged.pdf, {sessionId}_report.html
+    private static final Pattern SESSION_FILE = Pattern.compile("([0-9a-f]{24})_(optimized\\.pdf|staged\\.pdf|report\\.html)");
+    // {sha256}.pdf, see ContentStore
+    private static final Pattern CONTENT_FILE = Pattern.compile("([0-9a-f]{64})\\.pdf");
+    // Uploads still being hashed, and content files ContentStore moved aside to delete
+    private static final Pattern SCRATCH_FILE = Pattern.compile("(upload|release)-.*\\.tmp");
+
+    // Names checked against Mongo per query during the sweep
+    private static final int SWEEP_CHUNK = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ContentStore contentStore;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Value("${pdf.storage.path:./pdf-storage}")
+    private String storagePath;
+
+    @Value("${pdf.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${pdf.reaper.max-batches:20}")
+    private int maxBatches;
+
+    @Value("${pdf.reaper.io-threads:4}")
+    private int ioThreads;
+
+    // Files younger than this may belong to work in progress
+    @Value("${pdf.reaper.orphan-grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    private ExecutorService ioPool;
+
+    @PostConstruct
+    void init() {
+        ioPool = Executors.newFixedThreadPool(ioThreads, InkService.namedThreads("reaper-io"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ioPool.shutdownNow();
+    }
+
+    /**
+     * Remove sessions past expiresAt, at most max-batches batches per run
+     */
+    @Scheduled(fixedDelayString = "${pdf.reaper.interval-ms:300000}", initialDelayString = "${pdf.reaper.initial-delay-ms:60000}")
+    public void reapExpired() {
+        Instant now = Instant.now();
+        long reaped = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Query query = Query.query(Criteria.where("expiresAt").lt(now))
+                    .with(Sort.by("expiresAt"))
+                    .limit(batchSize);
+            query.fields().include("id");
+            List<String> expired = mongoTemplate.find(query, PdfSession.class).stream()
+                    .map(PdfSession::getId)
+                    .toList();
+            if (expired.isEmpty()) {
+                break;
+            }
+            reaped += reap(expired);
+            if (expired.size() < batchSize) {
+                break;
+            }
+        }
+        if (reaped > 0) {
+            log.info("Reaped {} expired sessions", reaped);
+        }
+    }
+
+    /**
+     * Delete storage files that no session or content record accounts for
+     */
+    @Scheduled(fixedDelayString = "${pdf.reaper.sweep-interval-ms:3600000}", initialDelayString = "${pdf.reaper.sweep-initial-delay-ms:600000}")
+    public void sweepOrphans() {
+        Path storageDir = Paths.get(storagePath);
+        if (!Files.isDirectory(storageDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(orphanGraceMinutes));
+
+        Map<String, List<Path>> sessionFiles = new HashMap<>();
+        Map<String, Path> contentFiles = new HashMap<>();
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storageDir)) {
+            for (Path file : files) {
+                if (!olderThan(file, cutoff)) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                Matcher session = SESSION_FILE.matcher(name);
+                Matcher content = CONTENT_FILE.matcher(name);
+                if (session.matches()) {
+                    sessionFiles.computeIfAbsent(session.group(1), id -> new ArrayList<>()).add(file);
+                } else if (content.matches()) {
+                    contentFiles.put(content.group(1), file);
+                } else if (SCRATCH_FILE.matcher(name).matches()) {
+                    removed += Files.deleteIfExists(file) ? 1 : 0;
+                }
+
+                // Check names a chunk at a time so memory stays flat on large directories
+                if (sessionFiles.size() >= SWEEP_CHUNK) {
+                    removed += sweepSessionFiles(sessionFiles);
+                }
+                if (contentFiles.size() >= SWEEP_CHUNK) {
+                    removed += sweepContentFiles(contentFiles, cutoff);
+                }
+            }
+            removed += sweepSessionFiles(sessionFiles);
+            removed += sweepContentFiles(contentFiles, cutoff);
+        } catch (IOException e) {
+            log.warn("Orphan sweep failed", e);
+        }
+        if (removed > 0) {
+            log.info("Removed {} orphaned storage files", removed);
+        }
+    }
+
+    // ========== Private Helper Methods ==========
+
+    /**
+     * Remove each session with findAndRemove, on the I/O pool, so exactly the
+     * sessions this run removed have their usage taken back and their files
+     * released; one deleteSession got to first has already done both. Records go
+     * before files: a crash in between leaves only files, which the sweep finds.
+     */
+    private long reap(List<String> ids) {
+        List<Future<Boolean>> pending = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            pending.add(ioPool.submit(() -> {
+                PdfSession removed = mongoTemplate.findAndRemove(byIdWithFiles(id), PdfSession.class);
+                if (removed == null) {
+                    return false;  // deleted meanwhile
+                }
+                userStatsService.sessionChanged(id, UserStatsService.Contribution.of(removed), null);
+                deleteFiles(removed);
+                return true;
+            }));
+        }
+
+        long reaped = 0;
+        for (Future<Boolean> future : pending) {
+            try {
+                if (future.get()) {
+                    reaped++;
+                }
+            } catch (ExecutionException e) {
+                log.warn("Failed to reap expired session", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return reaped;
+    }
+
+    private static Query byIdWithFiles(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include("contentHash", "originalFilePath", "optimizedFilePath", "reportFilePath",
+                "pagesBefore", "inkBefore", "optimizingScore");
+        return query;
+    }
+
+    private void deleteFiles(PdfSession session) throws IOException {
+        if (session.getContentHash() != null) {
+            contentStore.release(session.getContentHash());
+        } else if (session.getOriginalFilePath() != null) {
+            Files.deleteIfExists(Paths.get(session.getOriginalFilePath()));
+        }
+        if (session.getOptimizedFilePath() != null) {
+            Files.deleteIfExists(Paths.get(session.getOptimizedFilePath()));
+        }
+        if (session.getReportFilePath() != null) {
+            Files.deleteIfExists(Paths.get(session.getReportFilePath()));
+        }
+    }
+
+    private int sweepSessionFiles(Map<String, List<Path>> filesBySession) throws IOException {
+        if (filesBySession.isEmpty()) {
+            return 0;
+        }
+        Query query = Query.query(Criteria.where("id").in(filesBySession.keySet()));
+        query.fields().include("id");
+        Set<String> live = new HashSet<>();
+        for (PdfSession session : mongoTemplate.find(query, PdfSession.class)) {
+            live.add(session.getId());
+        }
+
+        int removed = 0;
+        for (Map.Entry<String, List<Path>> entry : filesBySession.entrySet()) {
+            if (!live.contains(entry.getKey())) {
+                for (Path file : entry.getValue()) {
+                    removed += Files.deleteIfExists(file) ? 1 : 0;
+                }
+            }
+        }
+        filesBySession.clear();
+        return removed;
+    }
+
+    private int sweepContentFiles(Map<String, Path> filesByHash, Instant cutoff) throws IOException {
+        if (filesByHash.isEmpty()) {
+            return 0;
+        }
+        // Uses the contentHash index
+        Query query = Query.query(Criteria.where("contentHash").in(filesByHash.keySet()));
+        query.fields().include("contentHash");
+        Set<String> referenced = new HashSet<>();
+        for (PdfSession session : mongoTemplate.find(query, PdfSession.class)) {
+            referenced.add(session.getContentHash());
+        }
+
+        int removed = 0;
+        for (String hash : filesByHash.keySet()) {
+            if (!referenced.contains(hash) && contentStore.reclaim(hash, cutoff)) {
+                removed++;
+            }
+        }
+        filesByHash.clear();
+        return removed;
+    }
+
+    private static boolean olderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
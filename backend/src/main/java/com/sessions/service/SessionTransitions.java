@@ -0,0 +1,100 @@
+package com.sessions.service;
+
+import com.sessions.model.PdfSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * PdfSession status machine.
+ * A run starts with a compare-and-set on the status (UPLOADED/ANALYZED/COMPLETE/ERROR
+ * -> ANALYZING or OPTIMIZING), so of two concurrent requests exactly one wins and the
+ * other gets SessionConflictException. A run ends by moving its own running status to
+ * the outcome in the same $set as its results. All writes are partial updates; the
+ * whole document is never rewritten. A run whose node died is taken over once its
+ * status is older than pdf.jobs.stale-after-minutes.
+ */
+@Service
+public class SessionTransitions {
+
+    public static final String UPLOADED = "UPLOADED";
+    public static final String ANALYZING = "ANALYZING";
+    public static final String ANALYZED = "ANALYZED";
+    public static final String OPTIMIZING = "OPTIMIZING";
+    public static final String COMPLETE = "COMPLETE";
+    public static final String ERROR = "ERROR";
+
+    // States a new run may start from
+    private static final List<String> IDLE = List.of(UPLOADED, ANALYZED, COMPLETE, ERROR);
+    private static final List<String> RUNNING = List.of(ANALYZING, OPTIMIZING);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${pdf.jobs.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    /**
+     * Move an idle session to a running status.
+     * Returns the session as it was just before, so its previous status is known;
+     * throws SessionConflictException when another run holds it.
+     */
+    public PdfSession begin(String sessionId, String running) {
+        Instant now = Instant.now();
+        // Matches a missing statusChangedAt too (runs from before it was recorded)
+        Criteria stale = Criteria.where("status").in(RUNNING)
+                .and("statusChangedAt").not().gte(now.minus(Duration.ofMinutes(staleAfterMinutes)));
+        Query query = Query.query(Criteria.where("id").is(sessionId)
+                .orOperator(Criteria.where("status").in(IDLE), stale));
+        Update update = new Update().set("status", running).set("statusChangedAt", now);
+
+        PdfSession previous = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(false), PdfSession.class);
+        if (previous != null) {
+            return previous;
+        }
+
+        Query current = Query.query(Criteria.where("id").is(sessionId));
+        current.fields().include("status");
+        PdfSession session = mongoTemplate.findOne(current, PdfSession.class);
+        if (session == null) {
+            throw new RuntimeException("Session not found: " + sessionId);
+        }
+        throw new SessionConflictException("Session is " + session.getStatus(), session.getStatus());
+    }
+
+    /**
+     * End a run: set the outcome status together with the run's results.
+     * Returns false if the session is gone or no longer in the running status.
+     */
+    public boolean finish(String sessionId, String running, String outcome, Update results) {
+        Update update = results != null ? results : new Update();
+        update.set("status", outcome).set("statusChangedAt", Instant.now());
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(sessionId).and("status").is(running)),
+                update, PdfSession.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Undo begin for a run that never started
+     */
+    public void revert(String sessionId, String running, String previous) {
+        finish(sessionId, running, previous, null);
+    }
+
+    /**
+     * Set fields without touching the status
+     */
+    public void patch(String sessionId, Update fields) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(sessionId)), fields, PdfSession.class);
+    }
+}
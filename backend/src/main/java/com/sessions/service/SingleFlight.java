@@ -0,0 +1,107 @@
+package com.sessions.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process single-flight registry.
+ * The first caller for a key starts the work; callers arriving while it is
+ * still in flight share the same CompletableFuture instead of repeating it.
+ * The key is dropped as soon as the work settles, so nothing is cached here.
+ */
+class SingleFlight<V> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * The in-flight future for key, or the one start returns if there is none.
+     * start runs at most once per flight and may throw; nothing is registered then.
+     */
+    CompletableFuture<V> share(String key, Supplier<CompletableFuture<V>> start) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+        leaders.incrementAndGet();
+
+        CompletableFuture<V> work;
+        try {
+            work = start.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        work.whenComplete((value, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight;
+    }
+
+    /**
+     * Run work on this thread unless a flight for key is in progress, in which
+     * case wait for that one; either way every caller gets the same result
+     */
+    V run(String key, Callable<V> work) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception exception) {
+                    throw exception;
+                }
+                throw (Error) cause;
+            }
+        }
+        leaders.incrementAndGet();
+
+        try {
+            V value = work.call();
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * True while a flight for key is in progress
+     */
+    boolean isInFlight(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * Flights running now, flights started, and callers that joined one instead
+     */
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", inFlight.size());
+        stats.put("leaders", leaders.get());
+        stats.put("coalesced", coalesced.get());
+        return stats;
+    }
+}
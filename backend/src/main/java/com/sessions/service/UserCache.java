@@ -0,0 +1,150 @@
+package com.sessions.service;
+
+import com.sessions.model.User;
+import com.sessions.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for user lookups by id or name.
+ * An access-ordered LRU of users keyed by id, with a name -> id index beside
+ * it, bounded by users.cache.max-entries. Entries also expire after
+ * users.cache.ttl-seconds so changes made on other nodes show up. Write paths
+ * read from UserRepository and invalidate here; cached users must not be mutated.
+ * Every invalidate bumps a generation, and a load that started before one is
+ * returned but not cached, so it cannot put back a user that was just written.
+ */
+@Service
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${users.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${users.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private record Entry(User user, long loadedAt) {}
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by itself
+    private final LinkedHashMap<String, Entry> byId = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, String> idByName = new HashMap<>();
+    // Invalidations so far; guarded by byId
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A user by MongoDB _id, falling back to name
+     */
+    public Optional<User> find(String idOrName) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (byId) {
+            loadGeneration = generation;
+            Entry entry = byId.get(idOrName);
+            if (entry == null) {
+                String id = idByName.get(idOrName);
+                entry = id != null ? byId.get(id) : null;
+            }
+            if (entry != null) {
+                if (now - entry.loadedAt() < ttlSeconds * 1000) {
+                    hits.incrementAndGet();
+                    return Optional.of(entry.user());
+                }
+                remove(entry.user());
+            }
+        }
+
+        misses.incrementAndGet();
+        // Only something shaped like an ObjectId can match by _id; skip that query otherwise
+        Optional<User> user = ObjectId.isValid(idOrName)
+                ? userRepository.findById(idOrName).or(() -> userRepository.findByName(idOrName))
+                : userRepository.findByName(idOrName);
+        user.ifPresent(found -> remember(found, now, loadGeneration));
+        return user;
+    }
+
+    /**
+     * Drop a user after it was written or deleted
+     */
+    public void invalidate(User user) {
+        synchronized (byId) {
+            generation++;
+            remove(user);
+            if (user.getName() != null) {
+                idByName.remove(user.getName());
+            }
+        }
+    }
+
+    /**
+     * Drop whatever is cached under an id or name
+     */
+    public void invalidate(String idOrName) {
+        synchronized (byId) {
+            generation++;
+            Entry entry = byId.get(idOrName);
+            if (entry == null) {
+                String id = idByName.get(idOrName);
+                entry = id != null ? byId.get(id) : null;
+            }
+            if (entry != null) {
+                remove(entry.user());
+            }
+            idByName.remove(idOrName);
+        }
+    }
+
+    /**
+     * Hit/miss counters and size
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        synchronized (byId) {
+            stats.put("entries", byId.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        return stats;
+    }
+
+    private void remember(User user, long loadedAt, long loadGeneration) {
+        synchronized (byId) {
+            if (generation != loadGeneration) {
+                return;  // invalidated while loading; the user may be stale
+            }
+            remove(user);
+            byId.put(user.getId(), new Entry(user, loadedAt));
+            if (user.getName() != null) {
+                idByName.put(user.getName(), user.getId());
+            }
+            while (byId.size() > maxEntries) {
+                remove(byId.values().iterator().next().user());
+            }
+        }
+    }
+
+    // Caller holds the byId lock
+    private void remove(User user) {
+        Entry removed = byId.remove(user.getId());
+        if (removed != null && removed.user().getName() != null) {
+            idByName.remove(removed.user().getName(), removed.user().getId());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.sessions.service;
+
+import com.sessions.dto.UserStats;
+import com.sessions.model.PdfSession;
+import com.sessions.model.User;
+import com.sessions.model.UserUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Per-user usage totals.
+ * Each user has a UserUsage document that is moved with atomic $inc whenever one
+ * of their sessions gains, changes or loses its analysis, so reads are a single
+ * findById however many sessions the user has. A session counts once it has a
+ * score. Missing documents are rebuilt from the sessions on first read, and a
+ * nightly job rebuilds all of them to correct drift.
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserStatsService.class);
+
+    // Rebuilds that lose the race to increments this many times in a row give up until the next one
+    private static final int REBUILD_ATTEMPTS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * One session's share of its owners' totals; null when it has not been analyzed
+     */
+    public record Contribution(long pages, double ink, long score) {
+        public static Contribution of(PdfSession session) {
+            if (session == null || session.getOptimizingScore() == null) {
+                return null;
+            }
+            return new Contribution(
+                    session.getPagesBefore() != null ? session.getPagesBefore() : 0,
+                    session.getInkBefore() != null ? session.getInkBefore() : 0.0,
+                    session.getOptimizingScore());
+        }
+    }
+
+    /**
+     * Page total, ink total and average score over the user's sessions
+     */
+    public UserStats statsFor(User user) {
+        UserUsage usage = mongoTemplate.findById(user.getId(), UserUsage.class);
+        if (usage == null) {
+            usage = rebuild(user);
+        }
+
+        UserStats stats = new UserStats();
+        stats.setPageTotal(usage.getPageTotal().intValue());
+        stats.setInkTotal(usage.getInkTotal());
+        stats.setSessionCount(usage.getSessionsAnalyzed().intValue());
+        if (usage.getSessionsAnalyzed() > 0) {
+            stats.setAvgScore((double) usage.getScoreSum() / usage.getSessionsAnalyzed());
+        }
+        return stats;
+    }
+
+    /**
+     * A session's analysis went from before to after (either may be null); move its owners' totals
+     */
+    public void sessionChanged(String sessionId, Contribution before, Contribution after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        Query owners = Query.query(Criteria.where("sessionIds").is(sessionId));
+        owners.fields().include("id");
+        for (User owner : mongoTemplate.find(owners, User.class)) {
+            increment(owner.getId(), before, after);
+        }
+    }
+
+    /**
+     * A session was added to a user's sessionIds
+     */
+    public void sessionLinked(String userId, String sessionId) {
+        PdfSession session = mongoTemplate.findById(sessionId, PdfSession.class);
+        Contribution added = Contribution.of(session);
+        if (added != null) {
+            increment(userId, null, added);
+        }
+    }
+
+    /**
+     * Drop a deleted user's totals
+     */
+    public void forget(String userId) {
+        mongoTemplate.remove(Query.query(Criteria.where("id").is(userId)), UserUsage.class);
+    }
+
+    /**
+     * Recompute a user's totals from their sessions in one aggregation and store them.
+     * The write only lands if no increment has moved the document since it was read
+     * (version check); otherwise the rebuild starts over, so an $inc is never
+     * overwritten by totals computed before it.
+     */
+    public UserUsage rebuild(User user) {
+        UserUsage rebuilt = null;
+        for (int attempt = 0; attempt < REBUILD_ATTEMPTS; attempt++) {
+            UserUsage current = mongoTemplate.findById(user.getId(), UserUsage.class);
+            rebuilt = aggregate(user);
+            rebuilt.setId(user.getId());
+            rebuilt.setUpdatedAt(Instant.now());
+
+            if (current == null) {
+                rebuilt.setVersion(0L);
+                try {
+                    return mongoTemplate.insert(rebuilt);
+                } catch (DuplicateKeyException e) {
+                    continue;  // created meanwhile by another rebuild
+                }
+            }
+
+            Long version = current.getVersion();
+            Query unchanged = Query.query(Criteria.where("id").is(user.getId()).and("version").is(version));
+            long next = version != null ? version + 1 : 1;
+            Update update = new Update()
+                    .set("pageTotal", rebuilt.getPageTotal())
+                    .set("inkTotal", rebuilt.getInkTotal())
+                    .set("scoreSum", rebuilt.getScoreSum())
+                    .set("sessionsAnalyzed", rebuilt.getSessionsAnalyzed())
+                    .set("updatedAt", rebuilt.getUpdatedAt())
+                    .set("version", next);
+            if (mongoTemplate.updateFirst(unchanged, update, UserUsage.class).getModifiedCount() > 0) {
+                rebuilt.setVersion(next);
+                return rebuilt;
+            }
+        }
+        // Still racing with increments: report the fresh totals, leave the stored ones to the next rebuild
+        return rebuilt;
+    }
+
+    /**
+     * Rebuild every user's totals so missed or double-applied increments do not persist
+     */
+    @Scheduled(cron = "${users.usage.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        Query query = new Query();
+        query.fields().include("id").include("sessionIds");
+        int drifted = 0;
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            for (User user : (Iterable<User>) users::iterator) {
+                UserUsage stored = mongoTemplate.findById(user.getId(), UserUsage.class);
+                UserUsage rebuilt = rebuild(user);
+                if (stored != null && drifted(stored, rebuilt)) {
+                    drifted++;
+                }
+            }
+        }
+        if (drifted > 0) {
+            log.info("Corrected usage totals for {} users", drifted);
+        }
+    }
+
+    // ========== Private Helper Methods ==========
+
+    private UserUsage aggregate(User user) {
+        UserUsage usage = null;
+        if (user.getSessionIds() != null && !user.getSessionIds().isEmpty()) {
+            // Typed so "id" maps to _id and the ids are converted to ObjectIds
+            TypedAggregation<PdfSession> aggregation = Aggregation.newAggregation(PdfSession.class,
+                    Aggregation.match(Criteria.where("id").in(user.getSessionIds())
+                            .and("optimizingScore").ne(null)),
+                    Aggregation.group()
+                            .sum("pagesBefore").as("pageTotal")
+                            .sum("inkBefore").as("inkTotal")
+                            .sum("optimizingScore").as("scoreSum")
+                            .count().as("sessionsAnalyzed"));
+            usage = mongoTemplate.aggregate(aggregation, UserUsage.class).getUniqueMappedResult();
+        }
+        return usage != null ? usage : new UserUsage();
+    }
+
+    private void increment(String userId, Contribution before, Contribution after) {
+        Update update = new Update()
+                .inc("pageTotal", pages(after) - pages(before))
+                .inc("inkTotal", ink(after) - ink(before))
+                .inc("scoreSum", score(after) - score(before))
+                .inc("sessionsAnalyzed", (after != null ? 1 : 0) - (before != null ? 1 : 0))
+                .set("updatedAt", Instant.now())
+                .inc("version", 1);
+        // No upsert: a user without totals yet gets them rebuilt, this session included, on first read
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(userId)), update, UserUsage.class);
+    }
+
+    private static boolean drifted(UserUsage a, UserUsage b) {
+        return !a.getPageTotal().equals(b.getPageTotal())
+                || !a.getScoreSum().equals(b.getScoreSum())
+                || !a.getSessionsAnalyzed().equals(b.getSessionsAnalyzed())
+                || Math.abs(a.getInkTotal() - b.getInkTotal()) > 1e-6;
+    }
+
+    private static long pages(Contribution c) {
+        return c != null ? c.pages() : 0;
+    }
+
+    private static double ink(Contribution c) {
+        return c != null ? c.ink() : 0.0;
+    }
+
+    private static long score(Contribution c) {
+        return c != null ? c.score() : 0;
+    }
+}
@@ -0,0 +1,239 @@
+package com.sessions.service;
+
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rasterization-free ink estimate for a single page.
+ * Walks the content stream and adds up filled path areas, stroke length x width,
+ * glyph boxes and image placements, each weighted by the darkness of its color.
+ * Pages with images, shadings or soft masks are flagged as complex so the caller
+ * can fall back to rendering.
+ */
+class VectorInkEstimator extends PDFGraphicsStreamEngine {
+
+    // Share of a glyph's advance x font bbox box that is actually inked
+    private static final double GLYPH_INK_RATIO = 0.25;
+
+    // Image content is unknown without decoding it
+    private static final double IMAGE_INK_WEIGHT = 0.5;
+
+    private final List<List<Point2D>> subpaths = new ArrayList<>();
+    private List<Point2D> currentSubpath;
+
+    private double inkArea = 0.0;
+    private boolean complex = false;
+
+    private VectorInkEstimator(PDPage page) {
+        super(page);
+    }
+
+    /**
+     * Estimate ink coverage (0-1) of a page, or null if the page is too complex to estimate
+     */
+    static Double estimate(PDPage page) throws IOException {
+        VectorInkEstimator estimator = new VectorInkEstimator(page);
+        estimator.processPage(page);
+        if (estimator.complex) {
+            return null;
+        }
+        PDRectangle cropBox = page.getCropBox();
+        double pageArea = (double) cropBox.getWidth() * cropBox.getHeight();
+        if (pageArea <= 0) {
+            return 0.0;
+        }
+        return Math.min(1.0, estimator.inkArea / pageArea);
+    }
+
+    // ========== Painting ==========
+
+    @Override
+    public void fillPath(int windingRule) {
+        inkArea += pathArea() * fillWeight();
+        endPath();
+    }
+
+    @Override
+    public void strokePath() {
+        inkArea += pathLength() * lineWidth() * strokeWeight();
+        endPath();
+    }
+
+    @Override
+    public void fillAndStrokePath(int windingRule) {
+        inkArea += pathArea() * fillWeight() + pathLength() * lineWidth() * strokeWeight();
+        endPath();
+    }
+
+    @Override
+    public void drawImage(PDImage pdImage) {
+        complex = true;
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        inkArea += Math.abs(ctm.getScaleX() * ctm.getScaleY() - ctm.getShearX() * ctm.getShearY())
+                * IMAGE_INK_WEIGHT;
+    }
+
+    @Override
+    public void shadingFill(COSName shadingName) {
+        complex = true;
+    }
+
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement)
+            throws IOException {
+        RenderingMode mode = getGraphicsState().getTextState().getRenderingMode();
+        if (!mode.isFill() && !mode.isStroke()) {
+            // Invisible text, e.g. the OCR layer of a scan
+            return;
+        }
+        double width = font.getWidth(code) / 1000.0 * Math.abs(textRenderingMatrix.getScalingFactorX());
+        BoundingBox bbox = font.getBoundingBox();
+        double height = (bbox != null && bbox.getHeight() > 0 ? bbox.getHeight() / 1000.0 : 1.0)
+                * Math.abs(textRenderingMatrix.getScalingFactorY());
+        double weight = mode.isFill() ? fillWeight() : strokeWeight();
+        inkArea += width * height * GLYPH_INK_RATIO * weight;
+    }
+
+    // ========== Path construction ==========
+
+    @Override
+    public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        List<Point2D> rectangle = new ArrayList<>(List.of(p0, p1, p2, p3, p0));
+        subpaths.add(rectangle);
+        currentSubpath = null;
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        currentSubpath = new ArrayList<>();
+        currentSubpath.add(new Point2D.Float(x, y));
+        subpaths.add(currentSubpath);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        pointsForAppend().add(new Point2D.Float(x, y));
+    }
+
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        // Control polygon is close enough for an area/length estimate
+        List<Point2D> points = pointsForAppend();
+        points.add(new Point2D.Float(x1, y1));
+        points.add(new Point2D.Float(x2, y2));
+        points.add(new Point2D.Float(x3, y3));
+    }
+
+    @Override
+    public Point2D getCurrentPoint() {
+        if (currentSubpath == null || currentSubpath.isEmpty()) {
+            return null;
+        }
+        return currentSubpath.get(currentSubpath.size() - 1);
+    }
+
+    @Override
+    public void closePath() {
+        if (currentSubpath != null && !currentSubpath.isEmpty()) {
+            currentSubpath.add(currentSubpath.get(0));
+        }
+    }
+
+    @Override
+    public void endPath() {
+        subpaths.clear();
+        currentSubpath = null;
+    }
+
+    @Override
+    public void clip(int windingRule) {
+        // Clipping paints nothing; the path is discarded by the following endPath
+    }
+
+    // ========== Helpers ==========
+
+    private List<Point2D> pointsForAppend() {
+        if (currentSubpath == null) {
+            currentSubpath = new ArrayList<>();
+            subpaths.add(currentSubpath);
+        }
+        return currentSubpath;
+    }
+
+    private double pathArea() {
+        double area = 0.0;
+        for (List<Point2D> points : subpaths) {
+            double twiceArea = 0.0;
+            for (int i = 0; i < points.size(); i++) {
+                Point2D a = points.get(i);
+                Point2D b = points.get((i + 1) % points.size());
+                twiceArea += a.getX() * b.getY() - b.getX() * a.getY();
+            }
+            area += Math.abs(twiceArea) / 2.0;
+        }
+        return area;
+    }
+
+    private double pathLength() {
+        double length = 0.0;
+        for (List<Point2D> points : subpaths) {
+            for (int i = 1; i < points.size(); i++) {
+                length += points.get(i - 1).distance(points.get(i));
+            }
+        }
+        return length;
+    }
+
+    private double lineWidth() {
+        PDGraphicsState state = getGraphicsState();
+        Matrix ctm = state.getCurrentTransformationMatrix();
+        double scale = Math.sqrt(Math.abs(ctm.getScaleX() * ctm.getScaleY() - ctm.getShearX() * ctm.getShearY()));
+        // Zero-width lines are drawn one device pixel wide
+        return Math.max(state.getLineWidth() * scale, 0.5);
+    }
+
+    private double fillWeight() {
+        PDGraphicsState state = getGraphicsState();
+        if (state.getSoftMask() != null) {
+            complex = true;
+        }
+        return darkness(state.getNonStrokingColor()) * state.getNonStrokeAlphaConstant();
+    }
+
+    private double strokeWeight() {
+        PDGraphicsState state = getGraphicsState();
+        if (state.getSoftMask() != null) {
+            complex = true;
+        }
+        return darkness(state.getStrokingColor()) * state.getAlphaConstant();
+    }
+
+    private double darkness(PDColor color) {
+        try {
+            int rgb = color.toRGB();
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            return 1.0 - ((77 * r + 150 * g + 29 * b) >> 8) / 255.0;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Patterns and exotic color spaces need a real render
+            complex = true;
+            return 1.0;
+        }
+    }
+}
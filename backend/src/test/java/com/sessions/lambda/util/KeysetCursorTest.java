@@ -0,0 +1,115 @@
+package com.sessions.lambda.util;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeysetCursorTest {
+
+    private MongoCollection<Document> collection;
+    private List<Document> rows;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        collection = mock(MongoCollection.class);
+        FindIterable<Document> find = mock(FindIterable.class, RETURNS_SELF);
+        when(collection.find(any(Bson.class))).thenReturn(find);
+        when(find.into(any())).thenAnswer(invocation -> {
+            Collection<Document> target = invocation.getArgument(0);
+            target.addAll(rows);
+            return target;
+        });
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        rows = List.of(row(2000), row(1000));
+
+        KeysetCursor.Page page = KeysetCursor.page(collection, null, 2, List.of("name"));
+
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.nextCursor()).isNull();
+        assertThat(render(captureFilter())).isEqualTo(new BsonDocument());
+    }
+
+    @Test
+    void nextPageContinuesAfterTheLastRow() {
+        Document last = row(2000);
+        rows = List.of(row(3000), last, row(2000));
+
+        KeysetCursor.Page first = KeysetCursor.page(collection, null, 2, List.of("name"));
+
+        assertThat(first.items()).hasSize(2);
+        assertThat(first.nextCursor()).isNotNull();
+
+        KeysetCursor.page(collection, first.nextCursor(), 2, List.of("name"));
+
+        assertThat(render(captureFilter())).isEqualTo(render(after(new Date(2000), last.getObjectId("_id"))));
+    }
+
+    @Test
+    void acceptsTheSpringApiCursorFormat() {
+        ObjectId id = new ObjectId();
+        // KeysetPager writes base64url("{createdAtMillis}:{id}")
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("5000:" + id.toHexString()).getBytes(StandardCharsets.UTF_8));
+        rows = List.of();
+
+        KeysetCursor.page(collection, cursor, 2, List.of("name"));
+
+        assertThat(render(captureFilter())).isEqualTo(render(after(new Date(5000), id)));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        rows = List.of();
+
+        assertThatThrownBy(() -> KeysetCursor.page(collection, "not a cursor", 2, List.of("name")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    private Bson captureFilter() {
+        ArgumentCaptor<Bson> filter = ArgumentCaptor.forClass(Bson.class);
+        verify(collection, atLeastOnce()).find(filter.capture());
+        return filter.getValue();
+    }
+
+    private static Bson after(Date createdAt, ObjectId id) {
+        return Filters.or(
+                Filters.lt("createdAt", createdAt),
+                Filters.and(Filters.eq("createdAt", createdAt), Filters.lt("_id", id)));
+    }
+
+    private static BsonDocument render(Bson filter) {
+        return filter.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    private static Document row(long createdAtMillis) {
+        return new Document("_id", new ObjectId()).append("createdAt", new Date(createdAtMillis));
+    }
+}
@@ -0,0 +1,103 @@
+package com.sessions.service;
+
+import com.sessions.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthTokensTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+
+    private AuthTokens authTokens;
+
+    @BeforeEach
+    void setUp() {
+        authTokens = tokens(SECRET, 12);
+    }
+
+    @Test
+    void verifyReturnsTheIssuedPrincipal() {
+        AuthTokens.Principal principal = authTokens.verify(authTokens.issue(user("u1", true)));
+
+        assertThat(principal).isNotNull();
+        assertThat(principal.userId()).isEqualTo("u1");
+        assertThat(principal.admin()).isTrue();
+        assertThat(principal.expiresAt()).isAfter(Instant.now().plusSeconds(11 * 3600));
+    }
+
+    @Test
+    void nonAdminAndMissingAdminFlagVerifyAsNonAdmin() {
+        assertThat(authTokens.verify(authTokens.issue(user("u1", false))).admin()).isFalse();
+        assertThat(authTokens.verify(authTokens.issue(user("u1", null))).admin()).isFalse();
+    }
+
+    @Test
+    void verifyRejectsAnExpiredToken() {
+        AuthTokens expiring = tokens(SECRET, 0);
+
+        assertThat(expiring.verify(expiring.issue(user("u1", false)))).isNull();
+    }
+
+    @Test
+    void verifyRejectsATamperedPayload() {
+        String token = authTokens.issue(user("u1", false));
+        String signature = token.substring(token.indexOf('.'));
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("u1:1:" + Instant.now().plusSeconds(3600).getEpochSecond()).getBytes(StandardCharsets.UTF_8));
+
+        assertThat(authTokens.verify(forged + signature)).isNull();
+    }
+
+    @Test
+    void verifyRejectsATokenSignedWithAnotherKey() {
+        AuthTokens other = tokens("", 12, "local");
+
+        assertThat(authTokens.verify(other.issue(user("u1", false)))).isNull();
+    }
+
+    @Test
+    void blankSecretFailsStartupOutsideLocalAndDev() {
+        assertThatThrownBy(() -> tokens("", 12))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("auth.token.secret");
+        assertThat(tokens(" ", 12, "dev").verify(null)).isNull();
+    }
+
+    @Test
+    void verifyRejectsMalformedTokens() {
+        assertThat(authTokens.verify(null)).isNull();
+        assertThat(authTokens.verify("")).isNull();
+        assertThat(authTokens.verify("no-dot")).isNull();
+        assertThat(authTokens.verify(".signature")).isNull();
+        assertThat(authTokens.verify("a.b.c")).isNull();
+        assertThat(authTokens.verify("!!!.???")).isNull();
+    }
+
+    private static AuthTokens tokens(String secret, long ttlHours, String... profiles) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles(profiles);
+        AuthTokens tokens = new AuthTokens();
+        ReflectionTestUtils.setField(tokens, "secret", secret);
+        ReflectionTestUtils.setField(tokens, "ttlHours", ttlHours);
+        ReflectionTestUtils.setField(tokens, "environment", environment);
+        tokens.init();
+        return tokens;
+    }
+
+    private static User user(String id, Boolean admin) {
+        User user = new User();
+        user.setId(id);
+        user.setIsAdmin(admin);
+        return user;
+    }
+}
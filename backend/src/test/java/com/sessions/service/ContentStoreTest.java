@@ -0,0 +1,83 @@
+package com.sessions.service;
+
+import com.sessions.model.PdfContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentStoreTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @TempDir
+    Path storage;
+
+    private MongoTemplate mongoTemplate;
+    private ContentStore contentStore;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mongoTemplate = mock(MongoTemplate.class);
+        contentStore = new ContentStore();
+        ReflectionTestUtils.setField(contentStore, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(contentStore, "storagePath", storage.toString());
+        file = Files.writeString(storage.resolve(HASH + ".pdf"), "%PDF-1.7");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(PdfContent.class))).thenReturn(content(0));
+    }
+
+    @Test
+    void lastReleaseDeletesTheFile() throws Exception {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(PdfContent.class))).thenReturn(content(0));
+
+        contentStore.release(HASH);
+
+        assertThat(storage).isEmptyDirectory();
+    }
+
+    @Test
+    void releaseKeepsTheFileWhenAnotherNodeTookAReferenceFirst() throws Exception {
+        // The conditional remove no longer matches once refCount is back above zero
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(PdfContent.class))).thenReturn(null);
+
+        contentStore.release(HASH);
+
+        assertThat(file).exists();
+    }
+
+    @Test
+    void releasePutsTheFileBackWhenAStoreRecordedTheHashAgain() throws Exception {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(PdfContent.class))).thenReturn(content(0));
+        when(mongoTemplate.exists(any(Query.class), eq(PdfContent.class))).thenReturn(true);
+
+        contentStore.release(HASH);
+
+        assertThat(file).hasContent("%PDF-1.7");
+        try (var files = Files.list(storage)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    private PdfContent content(int refCount) {
+        PdfContent content = new PdfContent();
+        content.setId(HASH);
+        content.setFilePath(storage.resolve(HASH + ".pdf").toString());
+        content.setRefCount(refCount);
+        return content;
+    }
+}
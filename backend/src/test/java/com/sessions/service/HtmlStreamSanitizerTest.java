@@ -0,0 +1,95 @@
+package com.sessions.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlStreamSanitizerTest {
+
+    private static final String DOCUMENT = "<!DOCTYPE html><html><body><p>Report</p></body></html>";
+
+    private static final String RESPONSE = "Here is your report:\n```html\n" + DOCUMENT + "\n```\nLet me know!";
+
+    @Test
+    void keepsOnlyTheDocumentFromOneChunk() {
+        assertThat(sanitize(RESPONSE)).isEqualTo(DOCUMENT);
+    }
+
+    @Test
+    void sameResultHoweverTheResponseIsSplit() {
+        for (int size = 1; size <= 10; size++) {
+            assertThat(sanitize(split(RESPONSE, size))).as("chunks of %d", size).isEqualTo(DOCUMENT);
+        }
+    }
+
+    @Test
+    void closingTagSplitAcrossChunksEndsTheDocument() {
+        assertThat(sanitize("<html><p>a</p></ht", "ml>trailing text")).isEqualTo("<html><p>a</p></html>");
+    }
+
+    @Test
+    void startsAtAnHtmlTagWhenThereIsNoDoctype() {
+        assertThat(sanitize("Sure. <HTML><p>a</p></HTML> done")).isEqualTo("<HTML><p>a</p></HTML>");
+    }
+
+    @Test
+    void emitsTheStartBeforeTheEndArrives() {
+        HtmlStreamSanitizer sanitizer = new HtmlStreamSanitizer();
+
+        assertThat(sanitizer.feed("preamble ")).isEmpty();
+        assertThat(sanitizer.feed("<html><body>" + "x".repeat(100))).startsWith("<html><body>xxx");
+    }
+
+    @Test
+    void endsAtTheLastClosingTag() {
+        HtmlStreamSanitizer sanitizer = new HtmlStreamSanitizer();
+
+        assertThat(sanitizer.feed("<html><pre></html></pre>")).isEqualTo("<html><pre></html>");
+        assertThat(sanitizer.feed("</html> trailing")).isEqualTo("</pre></html>");
+        assertThat(sanitizer.feed(" more text")).isEmpty();
+        assertThat(sanitizer.finish()).isEmpty();
+    }
+
+    @Test
+    void matchesTheBatchSanitizer() {
+        List<String> responses = List.of(
+                RESPONSE,
+                "```html\n<html><p>one</p></html>\n<html><p>two</p></html>\n```",
+                "Note:\n<!doctype html><html><code>&lt;/html&gt; </html> inline</code></html> bye");
+        for (String response : responses) {
+            String batch = PdfService.sanitizeHtmlResponse(response);
+            for (int size = 1; size <= 10; size++) {
+                assertThat(sanitize(split(response, size))).as("%s in chunks of %d", response, size).isEqualTo(batch);
+            }
+        }
+    }
+
+    @Test
+    void passesAResponseWithoutHtmlThroughWithoutFences() {
+        assertThat(sanitize("```\nplain text\n```")).isEqualTo("plain text");
+    }
+
+    @Test
+    void unterminatedDocumentIsFlushedOnFinish() {
+        assertThat(sanitize("<html><p>cut off")).isEqualTo("<html><p>cut off");
+    }
+
+    private static String sanitize(String... chunks) {
+        HtmlStreamSanitizer sanitizer = new HtmlStreamSanitizer();
+        StringBuilder out = new StringBuilder();
+        for (String chunk : chunks) {
+            out.append(sanitizer.feed(chunk));
+        }
+        return out.append(sanitizer.finish()).toString();
+    }
+
+    private static String[] split(String text, int size) {
+        String[] chunks = new String[(text.length() + size - 1) / size];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = text.substring(i * size, Math.min(text.length(), (i + 1) * size));
+        }
+        return chunks;
+    }
+}
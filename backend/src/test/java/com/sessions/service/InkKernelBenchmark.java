@@ -0,0 +1,161 @@
+package com.sessions.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Micro-benchmark for the ink darkness kernel: the old per-render RGB image
+ * sampled with getRGB every 4th pixel in each direction, against a pooled gray
+ * raster summed over every pixel. Renders a generated text-only letter page at
+ * 144 DPI and reports time and allocation per page, for draw + measure and for
+ * the kernel alone.
+ *
+ *   mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat cp.txt) com.sessions.service.InkKernelBenchmark [iterations]
+ *
+ * Not a unit test; run by hand when touching the kernel or the raster pool.
+ */
+public class InkKernelBenchmark {
+
+    private static final float DPI = 144f;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        // PDFBox logs a font fallback warning on every render of a Standard 14 font
+        ((Logger) LoggerFactory.getLogger("org.apache.pdfbox")).setLevel(Level.ERROR);
+
+        try (PDDocument document = textPage()) {
+            PDFRenderer renderer = new PDFRenderer(document);
+            RasterPool pool = new RasterPool(4);
+            PDRectangle box = document.getPage(0).getCropBox();
+            int width = (int) Math.floor(box.getWidth() * DPI / 72f);
+            int height = (int) Math.floor(box.getHeight() * DPI / 72f);
+
+            // Warm up both paths before measuring
+            for (int i = 0; i < iterations; i++) {
+                oldDarkness(renderer.renderImageWithDPI(0, DPI));
+                pooledDarkness(renderer, pool, width, height);
+            }
+
+            double[] before = measure(iterations, () -> oldDarkness(renderer.renderImageWithDPI(0, DPI)));
+            double[] after = measure(iterations, () -> pooledDarkness(renderer, pool, width, height));
+
+            BufferedImage rgb = renderer.renderImageWithDPI(0, DPI);
+            BufferedImage gray = pool.acquire(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            draw(renderer, gray);
+            double[] oldKernel = measure(iterations, () -> oldDarkness(rgb));
+            double[] newKernel = measure(iterations, () -> InkService.calculateImageDarkness(gray));
+
+            System.out.printf("page %dx%d px, %d iterations%n", width, height, iterations);
+            report("draw + measure, before", before);
+            report("draw + measure, after ", after);
+            report("kernel only,    before", oldKernel);
+            report("kernel only,    after ", newKernel);
+            System.out.printf("darkness: before %.4f, after %.4f%n",
+                    oldDarkness(rgb), InkService.calculateImageDarkness(gray));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        double run() throws IOException;
+    }
+
+    /**
+     * Milliseconds and megabytes allocated per iteration on this thread
+     */
+    private static double[] measure(int iterations, Body body) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        double sink = 0;
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += body.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        if (sink < 0) {
+            System.out.println(sink);
+        }
+        return new double[] {elapsed / 1e6 / iterations, allocated / 1e6 / iterations};
+    }
+
+    private static void report(String label, double[] result) {
+        System.out.printf("%s  %7.3f ms/page  %7.2f MB/page%n", label, result[0], result[1]);
+    }
+
+    private static double pooledDarkness(PDFRenderer renderer, RasterPool pool, int width, int height)
+            throws IOException {
+        BufferedImage image = pool.acquire(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        try {
+            draw(renderer, image);
+            return InkService.calculateImageDarkness(image);
+        } finally {
+            pool.release(image);
+        }
+    }
+
+    private static void draw(PDFRenderer renderer, BufferedImage image) throws IOException {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+            renderer.renderPageToGraphics(0, graphics, DPI / 72f);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * The kernel before pooled rasters: getRGB on every 4th pixel, plain RGB average
+     */
+    private static double oldDarkness(BufferedImage image) {
+        long totalDarkness = 0;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int y = 0; y < height; y += 4) {
+            for (int x = 0; x < width; x += 4) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF;
+                int g = (rgb >> 8) & 0xFF;
+                int b = rgb & 0xFF;
+                totalDarkness += 255 - (r + g + b) / 3;
+            }
+        }
+        int sampledPixels = (width / 4) * (height / 4);
+        return (totalDarkness / (double) sampledPixels) / 255.0;
+    }
+
+    private static PDDocument textPage() throws IOException {
+        PDDocument document = new PDDocument();
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 11);
+            content.beginText();
+            content.setLeading(14);
+            content.newLineAtOffset(72, 720);
+            for (int line = 0; line < 46; line++) {
+                content.showText("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor " + line);
+                content.newLine();
+            }
+            content.endText();
+        }
+        return document;
+    }
+}
@@ -0,0 +1,114 @@
+package com.sessions.service;
+
+import com.sessions.dto.CursorPage;
+import com.sessions.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeysetPagerTest {
+
+    private MongoTemplate mongoTemplate;
+    private KeysetPager pager;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        pager = new KeysetPager();
+        ReflectionTestUtils.setField(pager, "mongoTemplate", mongoTemplate);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(User.class))).thenReturn(List.of(user("b", 2000), user("a", 1000)));
+
+        CursorPage<User> page = page(null, 2);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNextCursor()).isNull();
+        Query query = captureQuery();
+        assertThat(query.getQueryObject()).isEmpty();
+        assertThat(query.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void nextPageContinuesAfterTheLastRow() {
+        when(mongoTemplate.find(any(Query.class), eq(User.class)))
+                .thenReturn(List.of(user("c", 3000), user("b", 2000), user("a", 2000)));
+
+        CursorPage<User> first = page(null, 2);
+
+        assertThat(first.getItems()).extracting(User::getId).containsExactly("c", "b");
+        assertThat(first.getNextCursor()).isNotNull();
+
+        page(first.getNextCursor(), 2);
+
+        Query query = captureQuery();
+        assertThat(query.getQueryObject()).isEqualTo(new Document("$or", List.of(
+                new Document("createdAt", new Document("$lt", Instant.ofEpochMilli(2000))),
+                new Document("createdAt", Instant.ofEpochMilli(2000)).append("id", new Document("$lt", "b")))));
+    }
+
+    @Test
+    void limitIsClamped() {
+        when(mongoTemplate.find(any(Query.class), eq(User.class))).thenReturn(List.of());
+
+        page(null, 10_000);
+
+        assertThat(captureQuery().getLimit()).isEqualTo(KeysetPager.MAX_LIMIT + 1);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> page("not a cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void selectFieldsFallsBackToSummaryAndRejectsUnknownFields() {
+        List<String> summary = List.of("name");
+        Set<String> allowed = Set.of("name", "isAdmin");
+
+        assertThat(KeysetPager.selectFields(null, summary, allowed)).isSameAs(summary);
+        assertThat(KeysetPager.selectFields(" ", summary, allowed)).isSameAs(summary);
+        assertThat(KeysetPager.selectFields("name, isAdmin,", summary, allowed)).containsExactly("name", "isAdmin");
+        assertThatThrownBy(() -> KeysetPager.selectFields("password", summary, allowed))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown field: password");
+    }
+
+    private CursorPage<User> page(String cursor, int limit) {
+        return pager.page(User.class, cursor, limit, List.of("name"), User::getId, User::getCreatedAt);
+    }
+
+    private Query captureQuery() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).find(query.capture(), eq(User.class));
+        return query.getValue();
+    }
+
+    private static User user(String id, long createdAtMillis) {
+        User user = new User();
+        user.setId(id);
+        user.setCreatedAt(Instant.ofEpochMilli(createdAtMillis));
+        return user;
+    }
+}
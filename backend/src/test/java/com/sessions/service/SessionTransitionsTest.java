@@ -0,0 +1,117 @@
+package com.sessions.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.sessions.model.PdfSession;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionTransitionsTest {
+
+    private MongoTemplate mongoTemplate;
+    private SessionTransitions transitions;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        transitions = new SessionTransitions();
+        ReflectionTestUtils.setField(transitions, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(transitions, "staleAfterMinutes", 30L);
+    }
+
+    @Test
+    void beginMovesAnIdleOrStaleSessionAndReturnsItAsItWas() {
+        PdfSession before = session(SessionTransitions.ANALYZED);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(PdfSession.class))).thenReturn(before);
+
+        assertThat(transitions.begin("s1", SessionTransitions.OPTIMIZING)).isSameAs(before);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), options.capture(), eq(PdfSession.class));
+
+        Document filter = query.getValue().getQueryObject();
+        assertThat(filter.get("id")).isEqualTo("s1");
+        List<?> alternatives = filter.getList("$or", Object.class);
+        assertThat(alternatives).hasSize(2);
+        assertThat(alternatives.get(0)).isEqualTo(new Document("status", new Document("$in",
+                List.of("UPLOADED", "ANALYZED", "COMPLETE", "ERROR"))));
+        assertThat(((Document) alternatives.get(1)).get("status"))
+                .isEqualTo(new Document("$in", List.of("ANALYZING", "OPTIMIZING")));
+
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertThat(set.get("status")).isEqualTo(SessionTransitions.OPTIMIZING);
+        assertThat(set).containsKey("statusChangedAt");
+        assertThat(options.getValue().isReturnNew()).isFalse();
+    }
+
+    @Test
+    void beginConflictsWhenAnotherRunHoldsTheSession() {
+        when(mongoTemplate.findOne(any(Query.class), eq(PdfSession.class)))
+                .thenReturn(session(SessionTransitions.ANALYZING));
+
+        assertThatThrownBy(() -> transitions.begin("s1", SessionTransitions.OPTIMIZING))
+                .isInstanceOfSatisfying(SessionConflictException.class,
+                        e -> assertThat(e.getCurrentStatus()).isEqualTo(SessionTransitions.ANALYZING));
+    }
+
+    @Test
+    void beginReportsAMissingSession() {
+        assertThatThrownBy(() -> transitions.begin("s1", SessionTransitions.ANALYZING))
+                .isNotInstanceOf(SessionConflictException.class)
+                .hasMessage("Session not found: s1");
+    }
+
+    @Test
+    void finishSetsTheOutcomeWithTheResultsOnlyFromTheRunningStatus() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(PdfSession.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        boolean finished = transitions.finish("s1", SessionTransitions.ANALYZING, SessionTransitions.ANALYZED,
+                new Update().set("pagesBefore", 12));
+
+        assertThat(finished).isTrue();
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(PdfSession.class));
+        assertThat(query.getValue().getQueryObject())
+                .isEqualTo(new Document("id", "s1").append("status", SessionTransitions.ANALYZING));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertThat(set.get("status")).isEqualTo(SessionTransitions.ANALYZED);
+        assertThat(set.get("pagesBefore")).isEqualTo(12);
+        assertThat(set).containsKey("statusChangedAt");
+    }
+
+    @Test
+    void finishReturnsFalseWhenTheRunNoLongerHoldsTheSession() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(PdfSession.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertThat(transitions.finish("s1", SessionTransitions.OPTIMIZING, SessionTransitions.COMPLETE, null)).isFalse();
+    }
+
+    private static PdfSession session(String status) {
+        PdfSession session = new PdfSession();
+        session.setId("s1");
+        session.setStatus(status);
+        return session;
+    }
+}
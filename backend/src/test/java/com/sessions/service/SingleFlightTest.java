@@ -0,0 +1,144 @@
+package com.sessions.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String> flights = new SingleFlight<>();
+
+    @Test
+    void shareJoinsTheFlightInProgress() {
+        CompletableFuture<String> work = new CompletableFuture<>();
+        AtomicInteger starts = new AtomicInteger();
+
+        CompletableFuture<String> first = flights.share("a", () -> {
+            starts.incrementAndGet();
+            return work;
+        });
+        CompletableFuture<String> second = flights.share("a", () -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+
+        assertThat(second).isSameAs(first);
+        assertThat(flights.isInFlight("a")).isTrue();
+        work.complete("done");
+        assertThat(second).isCompletedWithValue("done");
+        assertThat(starts).hasValue(1);
+        assertThat(flights.isInFlight("a")).isFalse();
+        assertThat(flights.stats()).containsEntry("leaders", 1L).containsEntry("coalesced", 1L);
+    }
+
+    @Test
+    void shareKeepsKeysApart() {
+        CompletableFuture<String> a = flights.share("a", CompletableFuture::new);
+        CompletableFuture<String> b = flights.share("b", CompletableFuture::new);
+
+        assertThat(b).isNotSameAs(a);
+        assertThat(flights.stats()).containsEntry("inFlight", 2);
+    }
+
+    @Test
+    void shareStartsAgainOnceTheFlightSettles() {
+        flights.share("a", () -> CompletableFuture.completedFuture("first"));
+        CompletableFuture<String> next = flights.share("a", () -> CompletableFuture.completedFuture("second"));
+
+        assertThat(next).isCompletedWithValue("second");
+        assertThat(flights.stats()).containsEntry("leaders", 2L).containsEntry("coalesced", 0L);
+    }
+
+    @Test
+    void shareRegistersNothingWhenStartThrows() {
+        assertThatThrownBy(() -> flights.share("a", () -> {
+            throw new IllegalStateException("busy");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(flights.isInFlight("a")).isFalse();
+    }
+
+    @Test
+    void sharePassesFailureToEveryCaller() {
+        CompletableFuture<String> work = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.share("a", () -> work);
+        CompletableFuture<String> second = flights.share("a", CompletableFuture::new);
+
+        work.completeExceptionally(new IllegalStateException("failed"));
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second).isCompletedExceptionally();
+        assertThat(flights.isInFlight("a")).isFalse();
+    }
+
+    @Test
+    void runWaitsForTheLeaderAndSharesItsResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flights.run("a", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "value";
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = pool.submit(() -> flights.run("a", () -> {
+                calls.incrementAndGet();
+                return "other";
+            }));
+            while (!flights.stats().get("coalesced").equals(1L)) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            assertThat(calls).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void runRethrowsTheLeadersException() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flights.run("a", () -> {
+                started.countDown();
+                release.await();
+                throw new IllegalArgumentException("bad input");
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> follower = pool.submit(() -> flights.run("a", () -> "other"));
+            while (!flights.stats().get("coalesced").equals(1L)) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+            assertThat(flights.isInFlight("a")).isFalse();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
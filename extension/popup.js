@@ -6,6 +6,9 @@ let currentStep = 'upload';
 let sessionId = null;
 let sessionData = null;
 
+// Give up on a job that has not settled after this long
+const STATUS_TIMEOUT_MS = 10 * 60 * 1000;
+
 // DOM Elements
 const elements = {
   connectionStatus: document.getElementById('connection-status'),
@@ -137,6 +140,26 @@ function showError(message) {
   elements.errorState.classList.remove('hidden');
 }
 
+// Poll session status until a queued analyze/optimize job settles
+async function waitForStatus(done) {
+  const deadline = Date.now() + STATUS_TIMEOUT_MS;
+  while (Date.now() < deadline) {
+    const response = await fetch(`${API_BASE}/pdf/${sessionId}/status`);
+    if (!response.ok) {
+      throw new Error(`Status check failed: ${response.status}`);
+    }
+    const session = await response.json();
+    if (session.status === done) {
+      return session;
+    }
+    if (session.status === 'ERROR') {
+      throw new Error('Processing failed');
+    }
+    await new Promise(resolve => setTimeout(resolve, 1000));
+  }
+  throw new Error('Timed out waiting for processing to finish');
+}
+
 // Handle file upload
 async function handleFileUpload(file) {
   // Validate
@@ -180,7 +203,8 @@ async function handleFileUpload(file) {
       throw new Error('Analysis failed');
     }
 
-    const analysisData = await analyzeResponse.json();
+    // Analysis runs in the background; the results land on the session
+    const analysisData = await waitForStatus('ANALYZED');
 
     elements.progressFill.style.width = '100%';
     elements.progressText.textContent = 'Complete!';
@@ -191,7 +215,7 @@ async function handleFileUpload(file) {
       pagesBefore: analysisData.pagesBefore,
       inkBefore: analysisData.inkBefore,
       optimizingScore: analysisData.optimizingScore,
-      suggestions: analysisData.recommendations || []
+      suggestions: analysisData.suggestions || []
     };
 
     // Update UI
@@ -259,7 +283,8 @@ async function handleOptimize() {
       throw new Error(errorMsg);
     }
 
-    const optimizedData = await response.json();
+    // Optimization runs in the background; the results land on the session
+    const optimizedData = await waitForStatus('COMPLETE');
     console.log('Optimization result:', optimizedData);
 
     // Update session data
@@ -294,13 +319,20 @@ async function handleOptimize() {
   }
 }
 
+// Stored report HTML, generating it first if there is none yet
+async function fetchReportHtml() {
+  let response = await fetch(`${API_BASE}/pdf/${sessionId}/report`);
+  if (response.status === 404) {
+    response = await fetch(`${API_BASE}/pdf/${sessionId}/report`, { method: 'POST' });
+  }
+  if (!response.ok) throw new Error('Failed to load report');
+  return response.text();
+}
+
 // Load report preview
 async function loadReportPreview() {
   try {
-    const response = await fetch(`${API_BASE}/pdf/${sessionId}/report`);
-    if (!response.ok) throw new Error('Failed to load report');
-    
-    const html = await response.text();
+    const html = await fetchReportHtml();
     
     const iframe = document.createElement('iframe');
     iframe.srcdoc = html;
@@ -322,9 +354,15 @@ function handleDownloadOriginal() {
   }
 }
 
-function handleDownloadReport() {
-  if (sessionId) {
+async function handleDownloadReport() {
+  if (!sessionId) return;
+  try {
+    // The download only serves a report that already exists
+    await fetchReportHtml();
     window.open(`${API_BASE}/pdf/${sessionId}/report/download`, '_blank');
+  } catch (error) {
+    console.error('Report download error:', error);
+    showError('Could not generate the report. Try again.');
   }
 }
 
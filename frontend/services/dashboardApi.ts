@@ -1,6 +1,17 @@
 const API_BASE_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080/api';
 
 export const dashboardApi = {
+  async getUserStats(userId: string): Promise<{
+    pageTotal: number;
+    inkTotal: number;
+    avgScore: number;
+    sessionCount: number;
+  }> {
+    const response = await fetch(`${API_BASE_URL}/users/${userId}/stats`);
+    if (!response.ok) throw new Error('Failed to fetch user stats');
+    return response.json();
+  },
+
   async getUserPageTotal(userId: string): Promise<number> {
     const response = await fetch(`${API_BASE_URL}/users/pageTotal/${userId}`);
     if (!response.ok) throw new Error('Failed to fetch page total');
@@ -19,13 +30,15 @@ export const dashboardApi = {
     return response.json();
   },
 
-  async getOrgMetrics(): Promise<{
+  // range: '24h', '7d', '30d', '365d' or 'all'
+  async getOrgMetrics(range = 'all'): Promise<{
     totalPagesSaved: number;
     totalInkSaved: number;
     avgOptimizingScore: number;
     totalSessions: number;
+    totalOptimized: number;
   }> {
-    const response = await fetch(`${API_BASE_URL}/dashboard/org-metrics`);
+    const response = await fetch(`${API_BASE_URL}/dashboard/org-metrics?range=${encodeURIComponent(range)}`);
     if (!response.ok) throw new Error('Failed to fetch org metrics');
     return response.json();
   },
@@ -27,6 +27,26 @@ async function handleResponse<T>(response: Response): Promise<T> {
   return response.json();
 }
 
+// Give up on a job that has not settled after this long
+const STATUS_TIMEOUT_MS = 10 * 60 * 1000;
+
+// Poll session status until a queued analyze/optimize job settles
+async function waitForStatus(sessionId: string, done: PdfSession['status']): Promise<PdfSession> {
+  const deadline = Date.now() + STATUS_TIMEOUT_MS;
+  while (Date.now() < deadline) {
+    const response = await fetch(`${API_BASE}/pdf/${sessionId}/status`);
+    const session = await handleResponse<PdfSession>(response);
+    if (session.status === done) {
+      return session;
+    }
+    if (session.status === 'ERROR') {
+      throw new Error('Processing failed');
+    }
+    await delay(1000);
+  }
+  throw new Error('Timed out waiting for processing to finish');
+}
+
 export const pdfApi = {
   /**
    * Check if backend is available
@@ -72,15 +92,28 @@ export const pdfApi = {
   },
 
   /**
-   * Analyze an uploaded PDF
+   * Analyze an uploaded PDF (queued on the backend; resolves once ANALYZED)
    */
   async analyzePdf(sessionId: string): Promise<AnalysisResult> {
 
     const response = await fetch(`${API_BASE}/pdf/${sessionId}/analyze`, {
       method: 'POST'
     });
+    await handleResponse<unknown>(response);
 
-    return handleResponse<AnalysisResult>(response);
+    const session = await waitForStatus(sessionId, 'ANALYZED');
+    const suggestions = session.suggestions ?? [];
+    return {
+      diagnosis: suggestions,
+      recommendations: suggestions,
+      estimatedSavings: {
+        pages: Math.max(0, session.pagesBefore - (session.pagesAfter ?? session.pagesBefore)),
+        inkPercent: 30
+      },
+      inkBefore: session.inkBefore,
+      pagesBefore: session.pagesBefore,
+      optimizingScore: session.optimizingScore ?? 0
+    };
   },
 
   /**
@@ -93,8 +126,9 @@ export const pdfApi = {
       headers: { 'Content-Type': 'application/json' },
       body: JSON.stringify(settings)
     });
+    await handleResponse<unknown>(response);
 
-    return handleResponse<PdfSession>(response);
+    return waitForStatus(sessionId, 'COMPLETE');
   },
 
   /**
@@ -114,10 +148,13 @@ export const pdfApi = {
   },
 
   /**
-   * Get HTML report content
+   * Get HTML report content, generating the report if there is none yet
    */
   async getReportHtml(sessionId: string): Promise<string> {
-    const response = await fetch(`${API_BASE}/pdf/${sessionId}/report`);
+    let response = await fetch(`${API_BASE}/pdf/${sessionId}/report`);
+    if (response.status === 404) {
+      response = await fetch(`${API_BASE}/pdf/${sessionId}/report`, { method: 'POST' });
+    }
     if (!response.ok) {
       throw new Error('Failed to fetch report');
     }